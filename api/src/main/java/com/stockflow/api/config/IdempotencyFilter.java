@@ -0,0 +1,106 @@
+package com.stockflow.api.config;
+
+import com.stockflow.api.service.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Replays the stored response for stock, transfer and sale POSTs that repeat an
+ * Idempotency-Key, so a client retrying after a timeout does not apply the change
+ * twice. Only successful responses are stored; failed requests can be retried.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    static final String KEY_HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyService idempotencyService;
+    private final List<String> paths;
+
+    public IdempotencyFilter(
+            IdempotencyService idempotencyService,
+            @Value("${stockflow.idempotency.paths:/api/stock/movement,/api/stock/movements/batch,/api/transfers,/api/transfers/manifest,/api/sales}") List<String> paths) {
+        this.idempotencyService = idempotencyService;
+        this.paths = paths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(KEY_HEADER) == null
+                || !paths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientKey = request.getHeader(KEY_HEADER).trim();
+        if (clientKey.isEmpty() || clientKey.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        // Keys are scoped to the endpoint they were first used on
+        String key = request.getRequestURI() + " " + clientKey;
+
+        // A new key costs one round trip, the reservation; the table is only read when it conflicts
+        var stored = idempotencyService.findCached(key);
+        if (stored.isPresent()) {
+            replay(response, stored.get());
+            return;
+        }
+
+        if (!idempotencyService.begin(key)) {
+            stored = idempotencyService.find(key);
+            if (stored.isPresent()) {
+                replay(response, stored.get());
+            } else {
+                response.sendError(HttpStatus.CONFLICT.value(),
+                        "A request with this " + KEY_HEADER + " is still being processed or was interrupted");
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, wrapper);
+
+            HttpStatus status = HttpStatus.resolve(wrapper.getStatus());
+            if (status != null && status.is2xxSuccessful()) {
+                idempotencyService.complete(key, wrapper.getStatus(), wrapper.getContentType(),
+                        wrapper.getContentAsByteArray());
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                idempotencyService.abandon(key);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void replay(HttpServletResponse response, IdempotencyService.StoredResponse stored) throws IOException {
+        response.setStatus(stored.getStatusCode());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        if (stored.getBody() != null) {
+            response.setContentLength(stored.getBody().length);
+            response.getOutputStream().write(stored.getBody());
+        }
+    }
+}
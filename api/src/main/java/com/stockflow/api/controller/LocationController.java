@@ -1,12 +1,18 @@
 package com.stockflow.api.controller;
 
+import com.stockflow.api.dto.EscrowRequest;
 import com.stockflow.api.dto.LocationDTO;
 import com.stockflow.api.dto.LocationInventoryDTO;
+import com.stockflow.api.dto.ReorderThresholdRequest;
+import com.stockflow.api.enums.StockStatus;
+import com.stockflow.api.service.EscrowService;
 import com.stockflow.api.service.LocationService;
+import com.stockflow.api.service.VersionStamps;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.UUID;
@@ -16,10 +22,16 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class LocationController {
     private final LocationService locationService;
+    private final EscrowService escrowService;
+    private final VersionStamps versionStamps;
 
     @GetMapping
-    public ResponseEntity<List<LocationDTO>> getAllLocations() {
-        return ResponseEntity.ok(locationService.getAllLocations());
+    public ResponseEntity<List<LocationDTO>> getAllLocations(WebRequest request) {
+        String etag = versionStamps.locationsTag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(locationService.getAllLocations());
     }
 
     @GetMapping("/{id}")
@@ -46,8 +58,43 @@ public class LocationController {
     }
 
     @GetMapping("/{id}/inventory")
-    public ResponseEntity<List<LocationInventoryDTO>> getLocationInventory(@PathVariable UUID id) {
-        List<LocationInventoryDTO> inventory = locationService.getLocationInventory(id);
-        return ResponseEntity.ok(inventory);
+    public ResponseEntity<List<LocationInventoryDTO>> getLocationInventory(
+            @PathVariable UUID id,
+            @RequestParam(required = false) StockStatus status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        // A deleted location must answer 404, not 304 against a tag it had before
+        locationService.getLocation(id);
+        String etag = versionStamps.inventoryTag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<LocationInventoryDTO> inventory = locationService.getLocationInventory(
+                id, status, page, size != null ? size : Integer.MAX_VALUE);
+        return ResponseEntity.ok().eTag(etag).body(inventory);
+    }
+
+    @GetMapping("/{id}/low-stock")
+    public ResponseEntity<List<LocationInventoryDTO>> getLowStockInventory(@PathVariable UUID id) {
+        return ResponseEntity.ok(locationService.getLowStockInventory(id));
+    }
+
+    @PutMapping("/{id}/inventory/{stockItemId}/threshold")
+    public ResponseEntity<Void> setReorderThreshold(
+            @PathVariable UUID id,
+            @PathVariable UUID stockItemId,
+            @Valid @RequestBody ReorderThresholdRequest request) {
+        locationService.setReorderThreshold(id, stockItemId, request.getReorderThreshold());
+        return ResponseEntity.ok().build();
+    }
+
+    @PutMapping("/{id}/inventory/{stockItemId}/escrow")
+    public ResponseEntity<Void> configureEscrow(
+            @PathVariable UUID id,
+            @PathVariable UUID stockItemId,
+            @Valid @RequestBody EscrowRequest request) {
+        escrowService.configureBuckets(id, stockItemId, request.getBuckets());
+        return ResponseEntity.ok().build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.stockflow.api.controller;
+
+import com.stockflow.api.service.LocationInventoryCache;
+import com.stockflow.api.service.OptimisticLockRetryExecutor;
+import com.stockflow.api.service.SkuIndex;
+import com.stockflow.api.service.StockCatalogCache;
+import com.stockflow.api.service.StockStreamHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+    private final OptimisticLockRetryExecutor retryExecutor;
+    private final StockCatalogCache catalogCache;
+    private final LocationInventoryCache inventoryCache;
+    private final SkuIndex skuIndex;
+    private final StockStreamHub streamHub;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("optimisticLockRetries", retryExecutor.getMetrics());
+        response.put("stockCatalogCache", catalogCache.getMetrics());
+        response.put("locationInventoryCache", inventoryCache.getMetrics());
+        response.put("skuIndexSize", skuIndex.size());
+        response.put("streamSubscribers", streamHub.getSubscriberCount());
+        
+        return ResponseEntity.ok(response);
+    }
+}
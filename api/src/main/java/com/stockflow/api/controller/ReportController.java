@@ -1,20 +1,33 @@
 package com.stockflow.api.controller;
 
 import com.stockflow.api.dto.report.*;
+import com.stockflow.api.enums.ExportFormat;
+import com.stockflow.api.service.ConsolidationService;
+import com.stockflow.api.service.MovementExportService;
 import com.stockflow.api.service.ReportingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/reports")
 @RequiredArgsConstructor
 public class ReportController {
     private final ReportingService reportingService;
+    private final ConsolidationService consolidationService;
+    private final MovementExportService exportService;
 
     @GetMapping("/stock")
     public ResponseEntity<List<StockReport>> getStockReport(
@@ -31,4 +44,77 @@ public class ReportController {
     ) {
         return ResponseEntity.ok(reportingService.generateMovementReport(startDate, endDate));
     }
+
+    @GetMapping(path = "/movements", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportMovementReportCsv(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return exportMovements(startDate, endDate, ExportFormat.CSV, acceptEncoding);
+    }
+
+    @GetMapping(path = "/movements", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMovementReportNdjson(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return exportMovements(startDate, endDate, ExportFormat.NDJSON, acceptEncoding);
+    }
+
+    @GetMapping("/movements/summary")
+    public ResponseEntity<List<MovementSummary>> getMovementSummary(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate
+    ) {
+        return ResponseEntity.ok(reportingService.generateMovementSummary(startDate, endDate));
+    }
+
+    @GetMapping("/consolidation")
+    public ResponseEntity<ConsolidationReport> getConsolidationReport(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        return ResponseEntity.ok(consolidationService.generateReport(date));
+    }
+
+    @GetMapping("/consolidation/range")
+    public ResponseEntity<ConsolidationRangeReport> getConsolidationRangeReport(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        return ResponseEntity.ok(consolidationService.generateRangeReport(startDate, endDate));
+    }
+
+    // Rows are written from the async request thread after the headers are sent
+    private ResponseEntity<StreamingResponseBody> exportMovements(
+        LocalDateTime startDate,
+        LocalDateTime endDate,
+        ExportFormat format,
+        String acceptEncoding
+    ) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        MediaType contentType = format == ExportFormat.CSV
+            ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+            : MediaType.APPLICATION_NDJSON;
+        String filename = "movements." + format.name().toLowerCase(Locale.ROOT);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> {
+            if (gzip) {
+                // Sync flush, so each periodic flush sends the rows compressed so far
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192, true);
+                exportService.exportMovements(startDate, endDate, format, compressed);
+                compressed.finish();
+            } else {
+                exportService.exportMovements(startDate, endDate, format, out);
+            }
+        });
+    }
 }
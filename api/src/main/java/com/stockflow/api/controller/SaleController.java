@@ -0,0 +1,29 @@
+package com.stockflow.api.controller;
+
+import com.stockflow.api.dto.CreateSaleRequest;
+import com.stockflow.api.dto.SaleDTO;
+import com.stockflow.api.dto.SaleItemRequest;
+import com.stockflow.api.service.OptimisticLockRetryExecutor;
+import com.stockflow.api.service.SaleService;
+import com.stockflow.api.util.ModelMapper;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/sales")
+@RequiredArgsConstructor
+public class SaleController {
+    private final SaleService saleService;
+    private final OptimisticLockRetryExecutor retryExecutor;
+
+    @PostMapping
+    public ResponseEntity<SaleDTO> createSale(@Valid @RequestBody CreateSaleRequest request) {
+        SaleDTO sale = retryExecutor.execute(
+            request.getItems().stream().map(SaleItemRequest::getStockItemId).distinct().toList(),
+            () -> ModelMapper.toSaleDTO(saleService.createSale(request))
+        );
+        return ResponseEntity.ok(sale);
+    }
+}
@@ -1,13 +1,27 @@
 package com.stockflow.api.controller;
 
+import com.stockflow.api.dto.MovementResult;
+import com.stockflow.api.dto.ReorderThresholdRequest;
 import com.stockflow.api.dto.StockItemDTO;
+import com.stockflow.api.dto.StockItemPage;
 import com.stockflow.api.dto.StockMovementRequest;
+import com.stockflow.api.service.MovementGroupCommitter;
+import com.stockflow.api.service.OptimisticLockRetryExecutor;
 import com.stockflow.api.service.StockService;
+import com.stockflow.api.service.VersionStamps;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,10 +30,59 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class StockController {
     private final StockService stockService;
+    private final OptimisticLockRetryExecutor retryExecutor;
+    private final MovementGroupCommitter groupCommitter;
+    private final ObjectMapper objectMapper;
+    private final VersionStamps versionStamps;
 
     @GetMapping
-    public ResponseEntity<List<StockItemDTO>> getAllStock() {
-        return ResponseEntity.ok(stockService.getAllStockItems());
+    public ResponseEntity<List<StockItemDTO>> getAllStock(WebRequest request) {
+        // Read the tag before the data so a concurrent change can only make it stale
+        String etag = versionStamps.catalogTag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(stockService.getAllStockItems());
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<StockItemPage> getStockPage(
+        @RequestParam(required = false) String after,
+        @RequestParam int limit
+    ) {
+        return ResponseEntity.ok(stockService.getStockItemPage(after, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<StockItemDTO>> searchStock(
+        @RequestParam("q") String query,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(stockService.searchStockItems(query, limit));
+    }
+
+    @GetMapping("/sku/{sku}")
+    public ResponseEntity<StockItemDTO> getStockItemBySku(@PathVariable String sku) {
+        return ResponseEntity.ok(stockService.getStockItemBySku(sku));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamStock() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                stockService.streamStockItems(item -> {
+                    try {
+                        generator.writeObject(item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @GetMapping("/{id}")
@@ -40,12 +103,30 @@ public class StockController {
         return ResponseEntity.ok(stockService.updateStockItem(id, request));
     }
 
+    @PutMapping("/{id}/threshold")
+    public ResponseEntity<StockItemDTO> setReorderThreshold(
+        @PathVariable UUID id,
+        @Valid @RequestBody ReorderThresholdRequest request
+    ) {
+        return ResponseEntity.ok(stockService.setReorderThreshold(id, request.getReorderThreshold()));
+    }
+
     @PostMapping("/movement")
     public ResponseEntity<Void> recordMovement(@Valid @RequestBody StockMovementRequest request) {
-        stockService.recordMovement(request);
+        retryExecutor.execute(List.of(request.getStockItemId()), () -> groupCommitter.isEnabled()
+            ? groupCommitter.record(request)
+            : stockService.recordMovement(request));
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/movements/batch")
+    public ResponseEntity<List<MovementResult>> recordMovements(
+        @RequestBody @NotEmpty List<@Valid StockMovementRequest> requests
+    ) {
+        List<UUID> itemIds = requests.stream().map(StockMovementRequest::getStockItemId).distinct().toList();
+        return ResponseEntity.ok(retryExecutor.execute(itemIds, () -> stockService.recordMovements(requests)));
+    }
+
     @GetMapping("/low-stock")
     public ResponseEntity<List<StockItemDTO>> getLowStockItems() {
         return ResponseEntity.ok(stockService.getLowStockItems());
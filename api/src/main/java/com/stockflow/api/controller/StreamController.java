@@ -0,0 +1,30 @@
+package com.stockflow.api.controller;
+
+import com.stockflow.api.service.LocationService;
+import com.stockflow.api.service.StockStreamHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+public class StreamController {
+    private final StockStreamHub streamHub;
+    private final LocationService locationService;
+
+    @GetMapping(path = "/stock", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStock(@RequestParam(required = false) UUID locationId) {
+        if (locationId != null) {
+            // Fails with 404 before the stream is opened
+            locationService.getLocation(locationId);
+        }
+        return streamHub.subscribe(locationId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.stockflow.api.controller;
+
+import com.stockflow.api.dto.SyncAction;
+import com.stockflow.api.dto.SyncResult;
+import com.stockflow.api.service.SyncService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+public class SyncController {
+    private final SyncService syncService;
+
+    @PostMapping
+    public ResponseEntity<List<SyncResult>> sync(@RequestBody @NotEmpty List<@Valid SyncAction> actions) {
+        return ResponseEntity.ok(syncService.applyQueue(actions));
+    }
+}
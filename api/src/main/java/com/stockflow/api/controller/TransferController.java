@@ -1,22 +1,39 @@
 package com.stockflow.api.controller;
 
+import com.stockflow.api.dto.TransferLineResult;
+import com.stockflow.api.dto.TransferManifestLine;
+import com.stockflow.api.dto.TransferManifestRequest;
 import com.stockflow.api.dto.TransferRequest;
 import com.stockflow.api.model.StockTransfer;
+import com.stockflow.api.service.OptimisticLockRetryExecutor;
 import com.stockflow.api.service.StockTransferService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/transfers")
 @RequiredArgsConstructor
 public class TransferController {
     private final StockTransferService transferService;
+    private final OptimisticLockRetryExecutor retryExecutor;
 
     @PostMapping
     public ResponseEntity<StockTransfer> transferStock(@Valid @RequestBody TransferRequest request) {
-        StockTransfer transfer = transferService.transferStock(request);
+        StockTransfer transfer = retryExecutor.execute(
+            List.of(request.getStockItemId()),
+            () -> transferService.transferStock(request)
+        );
         return ResponseEntity.ok(transfer);
     }
+
+    @PostMapping("/manifest")
+    public ResponseEntity<List<TransferLineResult>> transferManifest(@Valid @RequestBody TransferManifestRequest request) {
+        List<UUID> itemIds = request.getLines().stream().map(TransferManifestLine::getStockItemId).distinct().toList();
+        return ResponseEntity.ok(retryExecutor.execute(itemIds, () -> transferService.transferManifest(request)));
+    }
 }
\ No newline at end of file
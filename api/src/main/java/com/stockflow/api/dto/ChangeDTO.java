@@ -0,0 +1,25 @@
+package com.stockflow.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.stockflow.api.enums.ChangeEntity;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * One changed record in the change feed, with its current state. Deleted
+ * records, and rows that no longer exist, only carry their ids.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeDTO {
+    private ChangeEntity entity;
+    private UUID id;
+    private UUID locationId;
+    private boolean deleted;
+    private StockItemDTO stockItem;
+    private Integer quantity;
+    private LocationDTO location;
+}
@@ -0,0 +1,17 @@
+package com.stockflow.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A page of the change feed. Pass nextCursor as "since" on the next poll.
+ */
+@Data
+@Builder
+public class ChangeFeedDTO {
+    private List<ChangeDTO> changes;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,15 @@
+package com.stockflow.api.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class EscrowRequest {
+    // Number of sub-buckets to split the stock across; 0 turns escrow off
+    @NotNull
+    @Min(0)
+    @Max(64)
+    private Integer buckets;
+}
@@ -0,0 +1,20 @@
+package com.stockflow.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * Outcome of a single line in a batch movement request
+ */
+@Data
+@Builder
+public class MovementResult {
+    private int index;
+    private UUID stockItemId;
+    private boolean success;
+    private UUID movementId;
+    private Integer quantity;
+    private String error;
+}
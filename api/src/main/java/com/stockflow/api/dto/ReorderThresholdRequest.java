@@ -0,0 +1,11 @@
+package com.stockflow.api.dto;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+@Data
+public class ReorderThresholdRequest {
+    // Null clears the threshold so the item's, or the configured default, applies
+    @Min(value = 0, message = "Reorder threshold cannot be negative")
+    private Integer reorderThreshold;
+}
@@ -0,0 +1,26 @@
+package com.stockflow.api.dto;
+
+import com.stockflow.api.enums.SaleStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class SaleDTO {
+    private UUID id;
+    private String customerName;
+    private String customerPhone;
+    private List<SaleItemDTO> items;
+    private UUID locationId;
+    private String locationName;
+    private BigDecimal total;
+    private String reference;
+    private SaleStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
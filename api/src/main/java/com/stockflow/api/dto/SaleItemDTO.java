@@ -0,0 +1,17 @@
+package com.stockflow.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+@Builder
+public class SaleItemDTO {
+    private UUID id;
+    private UUID stockItemId;
+    private Integer quantity;
+    private BigDecimal price;
+    private BigDecimal total;
+}
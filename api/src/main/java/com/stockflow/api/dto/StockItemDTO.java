@@ -17,6 +17,7 @@ public class StockItemDTO {
     private BigDecimal price;
     private Integer quantity;
     private StockStatus status;
+    private Integer reorderThreshold;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.stockflow.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of the catalog in SKU order. Pass nextCursor as "after" to get the
+ * following page; it is null on the last page.
+ */
+@Data
+@Builder
+public class StockItemPage {
+    private List<StockItemDTO> items;
+    private String nextCursor;
+}
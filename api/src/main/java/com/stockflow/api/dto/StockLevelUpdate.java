@@ -0,0 +1,22 @@
+package com.stockflow.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.stockflow.api.enums.StockStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * Current quantity and status of an item, pushed to stock stream subscribers.
+ * The location is set on streams filtered by location.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StockLevelUpdate {
+    private UUID stockItemId;
+    private UUID locationId;
+    private int quantity;
+    private StockStatus status;
+}
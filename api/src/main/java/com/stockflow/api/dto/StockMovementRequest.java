@@ -3,13 +3,17 @@ package com.stockflow.api.dto;
 import com.stockflow.api.enums.MovementType;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.util.UUID;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class StockMovementRequest {
     @NotNull
     private UUID stockItemId;
@@ -0,0 +1,26 @@
+package com.stockflow.api.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.stockflow.api.enums.SyncActionType;
+import com.stockflow.api.enums.SyncEntity;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * An action queued by a desktop client while it was offline
+ */
+@Data
+public class SyncAction {
+    @NotBlank
+    private String id;
+
+    @NotNull
+    private SyncActionType type;
+
+    @NotNull
+    private SyncEntity entity;
+
+    private JsonNode data;
+    private Long timestamp;
+}
@@ -0,0 +1,24 @@
+package com.stockflow.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SyncResult {
+    private String id;
+    private boolean success;
+    private String error;
+
+    public static SyncResult ok(String id) {
+        return new SyncResult(id, true, null);
+    }
+
+    public static SyncResult failed(String id, String error) {
+        return new SyncResult(id, false, error);
+    }
+}
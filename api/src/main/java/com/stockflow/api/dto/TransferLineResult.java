@@ -0,0 +1,22 @@
+package com.stockflow.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * Outcome of a single line in a transfer manifest
+ */
+@Data
+@Builder
+public class TransferLineResult {
+    private int index;
+    private UUID stockItemId;
+    private boolean success;
+    private UUID outMovementId;
+    private UUID inMovementId;
+    private Integer sourceQuantity;
+    private Integer targetQuantity;
+    private String error;
+}
@@ -0,0 +1,17 @@
+package com.stockflow.api.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class TransferManifestLine {
+    @NotNull(message = "Stock item ID is required")
+    private UUID stockItemId;
+
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be at least 1")
+    private Integer quantity;
+}
@@ -0,0 +1,25 @@
+package com.stockflow.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class TransferManifestRequest {
+    @NotNull(message = "Source location ID is required")
+    private UUID sourceLocationId;
+
+    @NotNull(message = "Target location ID is required")
+    private UUID targetLocationId;
+
+    private String reference;
+    private String notes;
+
+    @NotEmpty(message = "Transfer must have at least one line")
+    @Valid
+    private List<TransferManifestLine> lines;
+}
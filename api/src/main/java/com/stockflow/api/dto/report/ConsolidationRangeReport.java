@@ -0,0 +1,18 @@
+package com.stockflow.api.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConsolidationRangeReport {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Map<UUID, Map<UUID, StockSummary>> summaries;
+}
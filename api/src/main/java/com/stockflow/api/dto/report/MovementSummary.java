@@ -0,0 +1,27 @@
+package com.stockflow.api.dto.report;
+
+import com.stockflow.api.enums.MovementType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Number and total quantity of an item's movements of one type at one location
+ * over a period. The location is null for movements not tied to a location.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovementSummary {
+    private UUID stockItemId;
+    private String sku;
+    private String itemName;
+    private UUID locationId;
+    private MovementType type;
+    private long movementCount;
+    private long quantity;
+}
@@ -0,0 +1,7 @@
+package com.stockflow.api.enums;
+
+public enum ChangeEntity {
+    STOCK_ITEM,
+    STOCK_LOCATION,
+    LOCATION
+}
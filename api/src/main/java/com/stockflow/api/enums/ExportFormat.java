@@ -0,0 +1,6 @@
+package com.stockflow.api.enums;
+
+public enum ExportFormat {
+    CSV,    // text/csv with a header row
+    NDJSON  // application/x-ndjson, one JSON object per line
+}
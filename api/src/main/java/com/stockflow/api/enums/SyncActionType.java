@@ -0,0 +1,7 @@
+package com.stockflow.api.enums;
+
+public enum SyncActionType {
+    CREATE,
+    UPDATE,
+    DELETE
+}
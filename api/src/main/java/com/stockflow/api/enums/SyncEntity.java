@@ -0,0 +1,9 @@
+package com.stockflow.api.enums;
+
+public enum SyncEntity {
+    STOCK,
+    SALE,
+    LOCATION,
+    MOVEMENT,
+    TRANSFER
+}
@@ -0,0 +1,19 @@
+package com.stockflow.api.event;
+
+import com.stockflow.api.model.Location;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published inside the transaction that creates, updates or deletes a location,
+ * with the saved location. The location is null when it was deleted.
+ */
+@Getter
+@AllArgsConstructor
+public class LocationChangedEvent {
+    private final UUID locationId;
+    private final boolean deleted;
+    private final Location location;
+}
@@ -0,0 +1,27 @@
+package com.stockflow.api.event;
+
+import com.stockflow.api.model.StockItem;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published inside the transaction that changes a stock_items row, with the
+ * item's new quantity and version. The item is null when the row was changed by
+ * a conditional UPDATE without loading it. Listeners after commit can run in a
+ * different order than the commits, so they drop events older than what they hold.
+ */
+@Getter
+@AllArgsConstructor
+public class StockItemChangedEvent {
+    private final UUID stockItemId;
+    private final int quantity;
+    private final long version;
+    private final StockItem item;
+
+    // A loaded item is versioned when it is flushed, after the event was published
+    public long getVersion() {
+        return item != null && item.getVersion() != null ? item.getVersion() : version;
+    }
+}
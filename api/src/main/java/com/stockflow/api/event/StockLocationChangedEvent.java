@@ -0,0 +1,18 @@
+package com.stockflow.api.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published inside the transaction that changes the stock an item has at a
+ * location, with the change to its total (row plus escrow buckets).
+ */
+@Getter
+@AllArgsConstructor
+public class StockLocationChangedEvent {
+    private final UUID locationId;
+    private final UUID stockItemId;
+    private final int quantityChange;
+}
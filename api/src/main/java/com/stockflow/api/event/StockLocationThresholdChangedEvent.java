@@ -0,0 +1,17 @@
+package com.stockflow.api.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published when an item's reorder threshold at a location is set or cleared
+ */
+@Getter
+@AllArgsConstructor
+public class StockLocationThresholdChangedEvent {
+    private final UUID locationId;
+    private final UUID stockItemId;
+    private final Integer reorderThreshold;
+}
@@ -0,0 +1,36 @@
+package com.stockflow.api.model;
+
+import com.stockflow.api.enums.ChangeEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "change_log")
+@Getter @Setter
+public class ChangeLogEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "change_log_seq")
+    @SequenceGenerator(name = "change_log_seq", sequenceName = "change_log_seq", allocationSize = 50)
+    private Long seq;
+
+    // Id of the writing transaction, filled in by the database
+    @Column(insertable = false, updatable = false)
+    private Long txid;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ChangeEntity entity;
+
+    @Column(name = "entity_id", nullable = false)
+    private UUID entityId;
+
+    @Column(name = "location_id")
+    private UUID locationId;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
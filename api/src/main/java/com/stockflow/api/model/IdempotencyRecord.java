@@ -0,0 +1,22 @@
+package com.stockflow.api.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Table(name = "idempotency_keys")
+@Getter @Setter
+public class IdempotencyRecord extends BaseEntity {
+    // Request path and client key, so the same key can be reused on another endpoint
+    @Column(name = "idempotency_key", nullable = false, unique = true)
+    private String idempotencyKey;
+
+    @Column(name = "status_code", nullable = false)
+    private Integer statusCode;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    private byte[] body;
+}
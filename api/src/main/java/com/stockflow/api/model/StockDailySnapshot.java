@@ -0,0 +1,52 @@
+package com.stockflow.api.model;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "stock_daily_snapshots")
+@IdClass(StockDailySnapshot.Key.class)
+@Getter @Setter
+public class StockDailySnapshot {
+    @Id
+    @Column(name = "snapshot_date")
+    private LocalDate snapshotDate;
+
+    @Id
+    @Column(name = "location_id")
+    private UUID locationId;
+
+    @Id
+    @Column(name = "stock_item_id")
+    private UUID stockItemId;
+
+    @Column(name = "opening_quantity", nullable = false)
+    private Integer openingQuantity;
+
+    @Column(nullable = false)
+    private Integer incoming;
+
+    @Column(nullable = false)
+    private Integer outgoing;
+
+    @Column(name = "closing_quantity", nullable = false)
+    private Integer closingQuantity;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Getter @Setter
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private LocalDate snapshotDate;
+        private UUID locationId;
+        private UUID stockItemId;
+    }
+}
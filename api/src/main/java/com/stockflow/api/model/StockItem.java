@@ -27,6 +27,10 @@ public class StockItem extends BaseEntity {
     @Enumerated(EnumType.STRING)
     private StockStatus status = StockStatus.ACTIVE;
 
+    // Quantity at or below which the item is low on stock; null uses the default
+    @Column(name = "reorder_threshold")
+    private Integer reorderThreshold;
+
     @Version
     private Long version;
 }
\ No newline at end of file
@@ -22,4 +22,13 @@ public class StockLocation extends BaseEntity {
     // For tracking opening stock at the start of each day
     @Column(name = "opening_quantity")
     private Integer openingQuantity;
+
+    // Number of escrow sub-buckets holding this stock; 0 means escrow is off.
+    // With escrow on, quantity only holds stock not yet spread into the buckets.
+    @Column(name = "escrow_buckets", nullable = false)
+    private Integer escrowBuckets = 0;
+
+    // Overrides the item's reorder threshold at this location when set
+    @Column(name = "reorder_threshold")
+    private Integer reorderThreshold;
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.stockflow.api.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Table(name = "stock_location_buckets")
+@Getter @Setter
+public class StockLocationBucket extends BaseEntity {
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_location_id", nullable = false)
+    private StockLocation stockLocation;
+
+    @Column(name = "bucket_no", nullable = false)
+    private Integer bucketNo;
+
+    @Column(nullable = false)
+    private Integer quantity;
+}
@@ -0,0 +1,51 @@
+package com.stockflow.api.model;
+
+import com.stockflow.api.enums.MovementType;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "stock_movement_rollups")
+@IdClass(StockMovementRollup.Key.class)
+@Getter @Setter
+public class StockMovementRollup {
+    // Movements without a location are rolled up under this id
+    public static final UUID NO_LOCATION = new UUID(0, 0);
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Id
+    @Column(name = "stock_item_id")
+    private UUID stockItemId;
+
+    @Id
+    @Column(name = "location_id")
+    private UUID locationId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private MovementType type;
+
+    @Column(name = "movement_count", nullable = false)
+    private Integer movementCount;
+
+    @Column(nullable = false)
+    private Long quantity;
+
+    @Getter @Setter
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private LocalDateTime bucketStart;
+        private UUID stockItemId;
+        private UUID locationId;
+        private MovementType type;
+    }
+}
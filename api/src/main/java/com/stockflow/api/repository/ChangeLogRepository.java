@@ -0,0 +1,32 @@
+package com.stockflow.api.repository;
+
+import com.stockflow.api.model.ChangeLogEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    // Only rows from transactions older than every running one, so none can still appear behind the cursor
+    @Query(value = """
+                SELECT * FROM change_log
+                WHERE (txid, seq) > (:txid, :seq)
+                    AND txid < pg_snapshot_xmin(pg_current_snapshot())::text::bigint
+                ORDER BY txid, seq
+                LIMIT :limit
+            """, nativeQuery = true)
+    List<ChangeLogEntry> findChangesAfter(
+            @Param("txid") long txid,
+            @Param("seq") long seq,
+            @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM ChangeLogEntry c WHERE c.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,65 @@
+package com.stockflow.api.repository;
+
+import com.stockflow.api.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, UUID> {
+    List<IdempotencyRecord> findByCreatedAtAfterOrderByCreatedAtAsc(LocalDateTime createdAfter);
+
+    Optional<IdempotencyRecord> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Insert a pending row for a key, or take over the key's row once it has
+     * expired or has been pending past its lease. Returns 0 if the key is held.
+     */
+    @Modifying
+    @Query(value = """
+                INSERT INTO idempotency_keys (id, idempotency_key, status_code, created_at, updated_at)
+                VALUES (:id, :key, 0, :now, :now)
+                ON CONFLICT (idempotency_key) DO UPDATE SET
+                    status_code = 0, content_type = NULL, body = NULL, created_at = :now, updated_at = :now
+                WHERE idempotency_keys.created_at < :cutoff
+                    OR (idempotency_keys.status_code = 0 AND idempotency_keys.created_at < :leaseCutoff)
+            """, nativeQuery = true)
+    int reserve(
+            @Param("id") UUID id,
+            @Param("key") String key,
+            @Param("now") LocalDateTime now,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("leaseCutoff") LocalDateTime leaseCutoff);
+
+    @Modifying
+    @Query("""
+                UPDATE IdempotencyRecord r
+                SET r.statusCode = :statusCode, r.contentType = :contentType, r.body = :body, r.updatedAt = :now
+                WHERE r.idempotencyKey = :key AND r.createdAt = :reservedAt
+            """)
+    int complete(
+            @Param("key") String key,
+            @Param("reservedAt") LocalDateTime reservedAt,
+            @Param("statusCode") int statusCode,
+            @Param("contentType") String contentType,
+            @Param("body") byte[] body,
+            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+                DELETE FROM IdempotencyRecord r
+                WHERE r.idempotencyKey = :key AND r.createdAt = :reservedAt AND r.statusCode = 0
+            """)
+    int deletePending(@Param("key") String key, @Param("reservedAt") LocalDateTime reservedAt);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -42,4 +42,17 @@ public interface SaleRepository extends JpaRepository<Sale, UUID> {
         @Param("startDate") LocalDateTime startDate,
         @Param("endDate") LocalDateTime endDate
     );
-}
\ No newline at end of file
+
+    // Number of sales in the period containing each item
+    @Query("""
+        SELECT si.stockItem.id, COUNT(DISTINCT s.id)
+        FROM SaleItem si
+        JOIN si.sale s
+        WHERE s.createdAt BETWEEN :startDate AND :endDate
+        GROUP BY si.stockItem.id
+    """)
+    List<Object[]> countSalesByItem(
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
+}
@@ -0,0 +1,114 @@
+package com.stockflow.api.repository;
+
+import com.stockflow.api.model.StockDailySnapshot;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public interface StockDailySnapshotRepository extends JpaRepository<StockDailySnapshot, StockDailySnapshot.Key> {
+
+    @Query("SELECT MAX(s.snapshotDate) FROM StockDailySnapshot s")
+    Optional<LocalDate> findLatestSnapshotDate();
+
+    /**
+     * Write one location's snapshot for a day. The opening is the previous day's
+     * closing; a location with no snapshot for the previous day starts from its
+     * current stock with every movement since the start of the day taken back out.
+     * Re-running a day overwrites it.
+     */
+    @Modifying
+    @Query(value = """
+                WITH previous AS (
+                    SELECT stock_item_id, closing_quantity AS quantity
+                    FROM stock_daily_snapshots
+                    WHERE snapshot_date = CAST(:date AS date) - 1 AND location_id = :locationId
+                ), since AS (
+                    SELECT stock_item_id, SUM(CASE WHEN type = 'IN' THEN quantity ELSE -quantity END) AS quantity
+                    FROM stock_movements
+                    WHERE location_id = :locationId AND created_at >= :start
+                    GROUP BY stock_item_id
+                ), baseline AS (
+                    SELECT sl.stock_item_id,
+                        sl.quantity + COALESCE(
+                            (SELECT SUM(b.quantity) FROM stock_location_buckets b WHERE b.stock_location_id = sl.id), 0)
+                            - COALESCE(since.quantity, 0) AS quantity
+                    FROM stock_locations sl
+                    LEFT JOIN since ON since.stock_item_id = sl.stock_item_id
+                    WHERE sl.location_id = :locationId AND NOT EXISTS (SELECT 1 FROM previous)
+                ), opening AS (
+                    SELECT * FROM previous
+                    UNION ALL
+                    SELECT * FROM baseline
+                ), moved AS (
+                    SELECT stock_item_id,
+                        SUM(CASE WHEN type = 'IN' THEN quantity ELSE 0 END) AS incoming,
+                        SUM(CASE WHEN type = 'IN' THEN 0 ELSE quantity END) AS outgoing
+                    FROM stock_movements
+                    WHERE location_id = :locationId AND created_at >= :start AND created_at < :end
+                    GROUP BY stock_item_id
+                )
+                INSERT INTO stock_daily_snapshots (snapshot_date, location_id, stock_item_id,
+                    opening_quantity, incoming, outgoing, closing_quantity)
+                SELECT CAST(:date AS date), :locationId, COALESCE(o.stock_item_id, m.stock_item_id),
+                    COALESCE(o.quantity, 0), COALESCE(m.incoming, 0), COALESCE(m.outgoing, 0),
+                    COALESCE(o.quantity, 0) + COALESCE(m.incoming, 0) - COALESCE(m.outgoing, 0)
+                FROM opening o
+                FULL OUTER JOIN moved m ON m.stock_item_id = o.stock_item_id
+                ON CONFLICT (snapshot_date, location_id, stock_item_id) DO UPDATE SET
+                    opening_quantity = EXCLUDED.opening_quantity,
+                    incoming = EXCLUDED.incoming,
+                    outgoing = EXCLUDED.outgoing,
+                    closing_quantity = EXCLUDED.closing_quantity
+            """, nativeQuery = true)
+    int writeLocationSnapshot(
+            @Param("date") LocalDate date,
+            @Param("locationId") UUID locationId,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
+    // One range scan over the primary key, as scalar rows so the persistence context stays empty
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+                SELECT s.snapshotDate, s.locationId, s.stockItemId,
+                    s.openingQuantity, s.incoming, s.outgoing, s.closingQuantity
+                FROM StockDailySnapshot s
+                WHERE s.snapshotDate BETWEEN :startDate AND :endDate
+                ORDER BY s.snapshotDate
+            """)
+    Stream<Object[]> streamBetween(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    @Query("""
+                SELECT MAX(s.snapshotDate) FROM StockDailySnapshot s
+                WHERE s.locationId = :locationId AND s.snapshotDate < :date
+            """)
+    Optional<LocalDate> findLatestSnapshotDateBefore(
+            @Param("locationId") UUID locationId,
+            @Param("date") LocalDate date);
+
+    @Query("""
+                SELECT s.stockItemId AS stockItemId, s.closingQuantity AS quantity
+                FROM StockDailySnapshot s
+                WHERE s.snapshotDate = :date AND s.locationId = :locationId
+            """)
+    List<StockLocationRepository.OpeningStock> findClosingStock(
+            @Param("date") LocalDate date,
+            @Param("locationId") UUID locationId);
+}
@@ -1,20 +1,24 @@
 package com.stockflow.api.repository;
 
-import com.stockflow.api.dto.report.StockReport;
 import com.stockflow.api.enums.StockStatus;
 import com.stockflow.api.model.StockItem;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface StockItemRepository extends JpaRepository<StockItem, UUID> {
@@ -22,31 +26,125 @@ public interface StockItemRepository extends JpaRepository<StockItem, UUID> {
 
     List<StockItem> findByStatus(StockStatus status);
 
+    // Keyset pagination over the unique SKU index
+    List<StockItem> findAllByOrderBySkuAsc(Limit limit);
+
+    List<StockItem> findBySkuGreaterThanOrderBySkuAsc(String sku, Limit limit);
+
+    // Forward-only cursor over the whole catalog; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM StockItem s ORDER BY s.sku")
+    Stream<StockItem> streamAllOrderBySku();
+
     List<StockItem> findByQuantityLessThanAndStatus(Integer threshold, StockStatus status);
 
+    @Query("""
+                SELECT s.id AS stockItemId, s.quantity AS quantity, s.reorderThreshold AS reorderThreshold,
+                    s.status AS status
+                FROM StockItem s
+            """)
+    List<StockLevel> findAllStockLevels();
+
+    // Scalar columns only, so loading the SKU index does not build 200k entities
+    @Query("""
+                SELECT s.id, s.sku, s.name, s.price, s.quantity, s.status, s.reorderThreshold,
+                    s.version, s.createdAt, s.updatedAt
+                FROM StockItem s
+            """)
+    List<Object[]> findAllCatalogColumns();
+
+    @Query("SELECT s.id, s.name, s.sku, s.version FROM StockItem s")
+    List<Object[]> findAllSearchColumns();
+
     @Lock(LockModeType.OPTIMISTIC)
     @Query("SELECT s FROM StockItem s WHERE s.id = :id")
     Optional<StockItem> findByIdWithLock(@Param("id") UUID id);
 
-    @Query("""
-                SELECT NEW com.stockflow.api.dto.report.StockReport(
-                    si.sku,
-                    si.name,
-                    si.quantity,
-                    si.status,
-                    si.price * si.quantity,
-                    COUNT(DISTINCT sm.id),
-                    COUNT(DISTINCT sal.id)
+    @Query("SELECT s.quantity FROM StockItem s WHERE s.id = :id")
+    Optional<Integer> findQuantityById(@Param("id") UUID id);
+
+    // Conditional decrement: returns the new quantity and version, or nothing when stock is insufficient
+    @Query(value = """
+                UPDATE stock_items
+                SET quantity = quantity - :quantity,
+                    status = CASE
+                        WHEN quantity - :quantity <= 0 THEN 'OUT_STOCK'
+                        WHEN quantity - :quantity <= COALESCE(reorder_threshold, :lowStockThreshold) THEN 'LOW_STOCK'
+                        ELSE 'ACTIVE'
+                    END,
+                    version = version + 1,
+                    updated_at = LOCALTIMESTAMP
+                WHERE id = :id AND quantity >= :quantity
+                RETURNING quantity AS quantity, version AS version
+            """, nativeQuery = true)
+    Optional<UpdatedQuantity> decrementQuantity(
+            @Param("id") UUID id,
+            @Param("quantity") int quantity,
+            @Param("lowStockThreshold") int lowStockThreshold);
+
+    @Query(value = """
+                UPDATE stock_items
+                SET quantity = quantity + :quantity,
+                    status = CASE
+                        WHEN quantity + :quantity <= 0 THEN 'OUT_STOCK'
+                        WHEN quantity + :quantity <= COALESCE(reorder_threshold, :lowStockThreshold) THEN 'LOW_STOCK'
+                        ELSE 'ACTIVE'
+                    END,
+                    version = version + 1,
+                    updated_at = LOCALTIMESTAMP
+                WHERE id = :id
+                RETURNING quantity AS quantity, version AS version
+            """, nativeQuery = true)
+    Optional<UpdatedQuantity> incrementQuantity(
+            @Param("id") UUID id,
+            @Param("quantity") int quantity,
+            @Param("lowStockThreshold") int lowStockThreshold);
+
+    // Escrow sales append their global change here instead of updating the item row
+    @Modifying
+    @Query(value = """
+                INSERT INTO stock_item_deltas (stock_item_id, delta, created_at)
+                VALUES (:id, :delta, LOCALTIMESTAMP)
+            """, nativeQuery = true)
+    int deferQuantityChange(@Param("id") UUID id, @Param("delta") int delta);
+
+    @Query(value = "SELECT DISTINCT stock_item_id FROM stock_item_deltas", nativeQuery = true)
+    List<UUID> findItemsWithDeferredChanges();
+
+    // Removes an item's deferred changes and adds their sum to the row in one statement
+    @Query(value = """
+                WITH drained AS (
+                    DELETE FROM stock_item_deltas WHERE stock_item_id = :id RETURNING delta
                 )
-                FROM StockItem si
-                LEFT JOIN StockMovement sm ON sm.stockItem = si
-                    AND sm.createdAt BETWEEN :startDate AND :endDate
-                LEFT JOIN SaleItem sai ON sai.stockItem = si
-                LEFT JOIN Sale sal ON sai.sale = sal
-                    AND sal.createdAt BETWEEN :startDate AND :endDate
-                GROUP BY si.id, si.sku, si.name, si.quantity, si.status, si.price
-            """)
-    List<StockReport> generateStockReport(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+                UPDATE stock_items
+                SET quantity = quantity + d.delta,
+                    status = CASE
+                        WHEN quantity + d.delta <= 0 THEN 'OUT_STOCK'
+                        WHEN quantity + d.delta <= COALESCE(reorder_threshold, :lowStockThreshold) THEN 'LOW_STOCK'
+                        ELSE 'ACTIVE'
+                    END,
+                    version = version + 1,
+                    updated_at = LOCALTIMESTAMP
+                FROM (SELECT CAST(SUM(delta) AS INTEGER) AS delta FROM drained) d
+                WHERE id = :id AND d.delta IS NOT NULL
+                RETURNING quantity AS quantity, version AS version
+            """, nativeQuery = true)
+    Optional<UpdatedQuantity> applyDeferredQuantityChanges(
+            @Param("id") UUID id,
+            @Param("lowStockThreshold") int lowStockThreshold);
+
+    interface UpdatedQuantity {
+        Integer getQuantity();
+        Long getVersion();
+    }
+
+    interface StockLevel {
+        UUID getStockItemId();
+        Integer getQuantity();
+        Integer getReorderThreshold();
+        StockStatus getStatus();
+    }
+}
@@ -0,0 +1,46 @@
+package com.stockflow.api.repository;
+
+import com.stockflow.api.model.StockLocationBucket;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockLocationBucketRepository extends JpaRepository<StockLocationBucket, UUID> {
+
+    // Takes stock from a random bucket that can cover it, skipping buckets other sales hold
+    @Query(value = """
+                UPDATE stock_location_buckets
+                SET quantity = quantity - :quantity, updated_at = LOCALTIMESTAMP
+                WHERE id = (
+                    SELECT id FROM stock_location_buckets
+                    WHERE stock_location_id = :stockLocationId AND quantity >= :quantity
+                    ORDER BY random()
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING quantity
+            """, nativeQuery = true)
+    Optional<Integer> withdrawFromAnyBucket(
+            @Param("stockLocationId") UUID stockLocationId,
+            @Param("quantity") int quantity);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StockLocationBucket b WHERE b.stockLocation.id = :stockLocationId ORDER BY b.bucketNo")
+    List<StockLocationBucket> findByStockLocationIdWithLock(@Param("stockLocationId") UUID stockLocationId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "0"))
+    @Query("SELECT b FROM StockLocationBucket b WHERE b.stockLocation.id = :stockLocationId ORDER BY b.bucketNo")
+    List<StockLocationBucket> findByStockLocationIdWithLockNoWait(@Param("stockLocationId") UUID stockLocationId);
+
+}
@@ -1,17 +1,18 @@
 package com.stockflow.api.repository;
 
+import com.stockflow.api.enums.StockStatus;
 import com.stockflow.api.model.StockLocation;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
-import java.time.LocalDate;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -24,26 +25,152 @@ public interface StockLocationRepository extends JpaRepository<StockLocation, UU
             @Param("itemId") UUID itemId,
             @Param("locationId") UUID locationId);
 
-    @Modifying
-    @Query("UPDATE StockLocation sl SET sl.openingQuantity = sl.quantity")
-    void updateAllOpeningQuantities();
+    // Rows are locked in (item, location) order so concurrent callers cannot deadlock.
+    // Escrow rows are left unlocked; their stock is taken from the buckets instead.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+                SELECT sl FROM StockLocation sl
+                WHERE sl.location.id = :locationId AND sl.stockItem.id IN :itemIds
+                    AND sl.escrowBuckets = 0
+                ORDER BY sl.stockItem.id, sl.location.id
+            """)
+    List<StockLocation> findByLocationAndStockItemsWithLock(
+            @Param("locationId") UUID locationId,
+            @Param("itemIds") Collection<UUID> itemIds);
 
+    // Source and target rows for a transfer manifest, locked together in the same
+    // (item, location) order as above. Escrow rows at the source are left unlocked.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("""
-                SELECT
-                    sl.location.id as locationId,
-                    sl.stockItem.id as itemId,
-                    sl.openingQuantity as quantity
+                SELECT sl FROM StockLocation sl
+                WHERE sl.stockItem.id IN :itemIds
+                    AND ((sl.location.id = :sourceId AND sl.escrowBuckets = 0) OR sl.location.id = :targetId)
+                ORDER BY sl.stockItem.id, sl.location.id
+            """)
+    List<StockLocation> findTransferRowsWithLock(
+            @Param("sourceId") UUID sourceId,
+            @Param("targetId") UUID targetId,
+            @Param("itemIds") Collection<UUID> itemIds);
+
+    @Query("""
+                SELECT sl FROM StockLocation sl
+                WHERE sl.location.id = :locationId AND sl.stockItem.id IN :itemIds
+                    AND sl.escrowBuckets > 0
+            """)
+    List<StockLocation> findEscrowByLocationAndStockItems(
+            @Param("locationId") UUID locationId,
+            @Param("itemIds") Collection<UUID> itemIds);
+
+    @Query("SELECT sl.id FROM StockLocation sl WHERE sl.escrowBuckets > 0")
+    List<UUID> findEscrowEnabledIds();
+
+    // Conditional decrement: returns the new quantity, or nothing when stock is insufficient
+    // or the row keeps its stock in escrow buckets
+    @Query(value = """
+                UPDATE stock_locations
+                SET quantity = quantity - :quantity, updated_at = LOCALTIMESTAMP
+                WHERE stock_item_id = :itemId AND location_id = :locationId AND quantity >= :quantity
+                    AND escrow_buckets = 0
+                RETURNING quantity
+            """, nativeQuery = true)
+    Optional<Integer> decrementQuantity(
+            @Param("itemId") UUID itemId,
+            @Param("locationId") UUID locationId,
+            @Param("quantity") int quantity);
+
+    @Query(value = """
+                UPDATE stock_locations
+                SET quantity = quantity + :quantity, updated_at = LOCALTIMESTAMP
+                WHERE stock_item_id = :itemId AND location_id = :locationId
+                RETURNING quantity
+            """, nativeQuery = true)
+    Optional<Integer> incrementQuantity(
+            @Param("itemId") UUID itemId,
+            @Param("locationId") UUID locationId,
+            @Param("quantity") int quantity);
+
+    Optional<StockLocation> findByStockItemIdAndLocationId(UUID stockItemId, UUID locationId);
+
+    // Current quantities at a location, escrow buckets included, used before the first daily snapshot
+    @Query("""
+                SELECT sl.stockItem.id AS stockItemId,
+                    sl.quantity + COALESCE(
+                        (SELECT SUM(b.quantity) FROM StockLocationBucket b WHERE b.stockLocation = sl), 0) AS quantity
                 FROM StockLocation sl
-                WHERE DATE(sl.updatedAt) <= :date
+                WHERE sl.location.id = :locationId
             """)
-    Map<UUID, Map<UUID, Integer>> findOpeningStockForDate(@Param("date") LocalDate date);
+    List<OpeningStock> findCurrentStockByLocationId(@Param("locationId") UUID locationId);
 
     // Added methods for LocationService
     List<StockLocation> findByLocationId(UUID locationId);
 
+    // Item columns and the location's total quantity, escrow buckets included, in one round trip
+    @Query("""
+                SELECT
+                    i.id AS stockItemId, i.name AS name, i.sku AS sku, i.price AS price,
+                    i.quantity AS itemQuantity, i.status AS status, i.reorderThreshold AS reorderThreshold,
+                    i.version AS version,
+                    i.createdAt AS createdAt, i.updatedAt AS updatedAt,
+                    sl.quantity + COALESCE(
+                        (SELECT SUM(b.quantity) FROM StockLocationBucket b WHERE b.stockLocation = sl), 0) AS quantity
+                FROM StockLocation sl JOIN sl.stockItem i
+                WHERE sl.location.id = :locationId
+                ORDER BY i.sku
+            """)
+    List<InventoryRow> findInventoryByLocationId(@Param("locationId") UUID locationId);
+
+    @Query("""
+                SELECT
+                    sl.location.id AS locationId, sl.stockItem.id AS stockItemId,
+                    sl.quantity + COALESCE(
+                        (SELECT SUM(b.quantity) FROM StockLocationBucket b WHERE b.stockLocation = sl), 0) AS quantity,
+                    sl.reorderThreshold AS reorderThreshold
+                FROM StockLocation sl
+            """)
+    List<LocationStockLevel> findAllStockLevels();
+
+    @Query("""
+                SELECT
+                    sl.location.id AS locationId, sl.stockItem.id AS stockItemId,
+                    sl.quantity + COALESCE(
+                        (SELECT SUM(b.quantity) FROM StockLocationBucket b WHERE b.stockLocation = sl), 0) AS quantity,
+                    sl.reorderThreshold AS reorderThreshold
+                FROM StockLocation sl
+                WHERE sl.stockItem.id IN :itemIds AND sl.location.id IN :locationIds
+            """)
+    List<LocationStockLevel> findStockLevels(
+            @Param("itemIds") Collection<UUID> itemIds,
+            @Param("locationIds") Collection<UUID> locationIds);
+
     @Query("SELECT COUNT(sl) FROM StockLocation sl WHERE sl.location.id = :locationId")
     long countByLocationId(@Param("locationId") UUID locationId);
 
     @Query("SELECT DISTINCT sl.location.id FROM StockLocation sl")
     List<UUID> findDistinctLocationIds();
-}
\ No newline at end of file
+
+    interface InventoryRow {
+        UUID getStockItemId();
+        String getName();
+        String getSku();
+        BigDecimal getPrice();
+        Integer getItemQuantity();
+        StockStatus getStatus();
+        Integer getReorderThreshold();
+        Long getVersion();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+        Long getQuantity();
+    }
+
+    interface LocationStockLevel {
+        UUID getLocationId();
+        UUID getStockItemId();
+        Long getQuantity();
+        Integer getReorderThreshold();
+    }
+
+    interface OpeningStock {
+        UUID getStockItemId();
+        Integer getQuantity();
+    }
+}
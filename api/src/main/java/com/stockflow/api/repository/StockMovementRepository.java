@@ -2,14 +2,19 @@ package com.stockflow.api.repository;
 
 import com.stockflow.api.dto.report.StockMovementReport;
 import com.stockflow.api.model.StockMovement;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface StockMovementRepository extends JpaRepository<StockMovement, UUID> {
@@ -21,6 +26,37 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, UU
         @Param("endDate") LocalDateTime endDate
     );
     
+    // Narrow rows for consolidation, read through a cursor rather than loaded as entities
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT m.stockItem.id, m.type, m.quantity
+        FROM StockMovement m
+        WHERE m.location.id = :locationId AND m.createdAt >= :start AND m.createdAt < :end
+    """)
+    Stream<Object[]> streamLocationMovements(
+        @Param("locationId") UUID locationId,
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end
+    );
+
+    @Query("SELECT MIN(m.createdAt) FROM StockMovement m")
+    Optional<LocalDateTime> findEarliestCreatedAt();
+
+    // Same shape as the hourly rollups, for the partial hours at the edges of a report
+    @Query("""
+        SELECT m.stockItem.id, m.location.id, m.type, COUNT(m), SUM(m.quantity)
+        FROM StockMovement m
+        WHERE m.createdAt >= :start AND m.createdAt < :end
+        GROUP BY m.stockItem.id, m.location.id, m.type
+    """)
+    List<Object[]> summarizeBetween(
+        @Param("start") LocalDateTime start,
+        @Param("end") LocalDateTime end
+    );
+
     @Query("""
         SELECT NEW com.stockflow.api.dto.report.StockMovementReport(
             s.name,
@@ -39,4 +75,25 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, UU
         @Param("startDate") LocalDateTime startDate,
         @Param("endDate") LocalDateTime endDate
     );
+
+    // The movement report read through a cursor, for exports that write rows as they arrive
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+        SELECT NEW com.stockflow.api.dto.report.StockMovementReport(
+            s.name,
+            s.sku,
+            m.type,
+            m.quantity,
+            m.createdAt,
+            m.reference
+        )
+        FROM StockMovement m
+        JOIN m.stockItem s
+        WHERE m.createdAt BETWEEN :startDate AND :endDate
+        ORDER BY m.createdAt DESC
+    """)
+    Stream<StockMovementReport> streamMovementsInPeriod(
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.stockflow.api.repository;
+
+import com.stockflow.api.model.StockMovementRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockMovementRollupRepository extends JpaRepository<StockMovementRollup, StockMovementRollup.Key> {
+
+    @Query(value = "SELECT watermark FROM rollup_watermarks WHERE name = :name", nativeQuery = true)
+    Optional<LocalDateTime> findWatermark(@Param("name") String name);
+
+    @Modifying
+    @Query(value = """
+                INSERT INTO rollup_watermarks (name, watermark) VALUES (:name, :watermark)
+                ON CONFLICT (name) DO UPDATE SET watermark = EXCLUDED.watermark
+            """, nativeQuery = true)
+    void saveWatermark(@Param("name") String name, @Param("watermark") LocalDateTime watermark);
+
+    @Modifying
+    @Query("DELETE FROM StockMovementRollup r WHERE r.bucketStart = :bucketStart")
+    void deleteBucket(@Param("bucketStart") LocalDateTime bucketStart);
+
+    // Recomputes the whole hour from the raw rows, so rolling it up again gives the same result
+    @Modifying
+    @Query(value = """
+                INSERT INTO stock_movement_rollups (bucket_start, stock_item_id, location_id, type,
+                    movement_count, quantity)
+                SELECT :bucketStart, stock_item_id,
+                    COALESCE(location_id, '00000000-0000-0000-0000-000000000000'::uuid), type,
+                    COUNT(*), SUM(quantity)
+                FROM stock_movements
+                WHERE created_at >= :bucketStart AND created_at < :bucketEnd
+                GROUP BY stock_item_id, location_id, type
+            """, nativeQuery = true)
+    int rollUpBucket(@Param("bucketStart") LocalDateTime bucketStart, @Param("bucketEnd") LocalDateTime bucketEnd);
+
+    @Query("""
+                SELECT r.stockItemId, r.locationId, r.type, SUM(r.movementCount), SUM(r.quantity)
+                FROM StockMovementRollup r
+                WHERE r.bucketStart >= :start AND r.bucketStart < :end
+                GROUP BY r.stockItemId, r.locationId, r.type
+            """)
+    List<Object[]> summarizeBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
@@ -0,0 +1,231 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.ChangeDTO;
+import com.stockflow.api.dto.ChangeFeedDTO;
+import com.stockflow.api.dto.StockItemDTO;
+import com.stockflow.api.enums.ChangeEntity;
+import com.stockflow.api.event.LocationChangedEvent;
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.event.StockLocationChangedEvent;
+import com.stockflow.api.event.StockLocationThresholdChangedEvent;
+import com.stockflow.api.model.ChangeLogEntry;
+import com.stockflow.api.model.Location;
+import com.stockflow.api.repository.ChangeLogRepository;
+import com.stockflow.api.repository.LocationRepository;
+import com.stockflow.api.repository.StockItemRepository;
+import com.stockflow.api.repository.StockLocationRepository;
+import com.stockflow.api.repository.StockLocationRepository.LocationStockLevel;
+import com.stockflow.api.util.ModelMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Change feed over stock items, item stock at locations and locations. Every
+ * change event writes a change_log row in the transaction that made the change,
+ * so the feed holds exactly the committed changes. Readers page through it with a
+ * "txid.seq" cursor.
+ */
+@Service
+@Transactional
+@Slf4j
+public class ChangeFeedService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Object RECORDED_KEY = new Object();
+
+    private final ChangeLogRepository changeLogRepository;
+    private final StockItemRepository stockItemRepository;
+    private final StockLocationRepository stockLocationRepository;
+    private final LocationRepository locationRepository;
+    private final StockCatalogCache catalogCache;
+    private final int retentionDays;
+
+    public ChangeFeedService(
+            ChangeLogRepository changeLogRepository,
+            StockItemRepository stockItemRepository,
+            StockLocationRepository stockLocationRepository,
+            LocationRepository locationRepository,
+            StockCatalogCache catalogCache,
+            @Value("${stockflow.changes.retention-days:7}") int retentionDays) {
+        this.changeLogRepository = changeLogRepository;
+        this.stockItemRepository = stockItemRepository;
+        this.stockLocationRepository = stockLocationRepository;
+        this.locationRepository = locationRepository;
+        this.catalogCache = catalogCache;
+        this.retentionDays = retentionDays;
+    }
+
+    @EventListener
+    public void onStockItemChanged(StockItemChangedEvent event) {
+        record(ChangeEntity.STOCK_ITEM, event.getStockItemId(), null);
+    }
+
+    @EventListener
+    public void onStockLocationChanged(StockLocationChangedEvent event) {
+        record(ChangeEntity.STOCK_LOCATION, event.getStockItemId(), event.getLocationId());
+    }
+
+    @EventListener
+    public void onThresholdChanged(StockLocationThresholdChangedEvent event) {
+        record(ChangeEntity.STOCK_LOCATION, event.getStockItemId(), event.getLocationId());
+    }
+
+    @EventListener
+    public void onLocationChanged(LocationChangedEvent event) {
+        record(ChangeEntity.LOCATION, event.getLocationId(), null);
+    }
+
+    /**
+     * Changes committed after the cursor, oldest first, each with the record's
+     * current state. A record changed several times in the page appears once.
+     */
+    @Transactional(readOnly = true)
+    public ChangeFeedDTO getChanges(String since, int limit) {
+        long[] cursor = parseCursor(since);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<ChangeLogEntry> entries = changeLogRepository.findChangesAfter(cursor[0], cursor[1], pageSize);
+
+        // Keep each record at the position of its latest change
+        Map<String, ChangeLogEntry> latest = new LinkedHashMap<>();
+        for (ChangeLogEntry entry : entries) {
+            String key = entry.getEntity() + ":" + entry.getEntityId() + ":" + entry.getLocationId();
+            latest.remove(key);
+            latest.put(key, entry);
+        }
+
+        Set<UUID> itemIds = new HashSet<>();
+        Set<UUID> stockItemIds = new HashSet<>();
+        Set<UUID> stockLocationIds = new HashSet<>();
+        Set<UUID> locationIds = new HashSet<>();
+        for (ChangeLogEntry entry : latest.values()) {
+            switch (entry.getEntity()) {
+                case STOCK_ITEM -> itemIds.add(entry.getEntityId());
+                case STOCK_LOCATION -> {
+                    stockItemIds.add(entry.getEntityId());
+                    stockLocationIds.add(entry.getLocationId());
+                }
+                case LOCATION -> locationIds.add(entry.getEntityId());
+            }
+        }
+
+        Map<UUID, StockItemDTO> items = new HashMap<>();
+        if (!itemIds.isEmpty()) {
+            for (StockItemDTO item : catalogCache.getAll(itemIds, stockItemRepository::findAllById)) {
+                items.put(item.getId(), item);
+            }
+        }
+        Map<String, Integer> quantities = new HashMap<>();
+        if (!stockItemIds.isEmpty()) {
+            for (LocationStockLevel level : stockLocationRepository.findStockLevels(stockItemIds, stockLocationIds)) {
+                quantities.put(level.getStockItemId() + ":" + level.getLocationId(), level.getQuantity().intValue());
+            }
+        }
+        Map<UUID, Location> locations = new HashMap<>();
+        if (!locationIds.isEmpty()) {
+            for (Location location : locationRepository.findAllById(locationIds)) {
+                locations.put(location.getId(), location);
+            }
+        }
+
+        List<ChangeDTO> changes = new ArrayList<>(latest.size());
+        for (ChangeLogEntry entry : latest.values()) {
+            ChangeDTO.ChangeDTOBuilder change = ChangeDTO.builder()
+                    .entity(entry.getEntity())
+                    .id(entry.getEntityId())
+                    .locationId(entry.getLocationId());
+            switch (entry.getEntity()) {
+                case STOCK_ITEM -> {
+                    StockItemDTO item = items.get(entry.getEntityId());
+                    change.stockItem(item).deleted(item == null);
+                }
+                case STOCK_LOCATION -> {
+                    Integer quantity = quantities.get(entry.getEntityId() + ":" + entry.getLocationId());
+                    change.quantity(quantity).deleted(quantity == null);
+                }
+                case LOCATION -> {
+                    Location location = locations.get(entry.getEntityId());
+                    change.location(ModelMapper.toLocationDTO(location)).deleted(location == null);
+                }
+            }
+            changes.add(change.build());
+        }
+
+        String nextCursor = entries.isEmpty()
+                ? cursor[0] + "." + cursor[1]
+                : formatCursor(entries.get(entries.size() - 1));
+        return ChangeFeedDTO.builder()
+                .changes(changes)
+                .nextCursor(nextCursor)
+                .hasMore(entries.size() == pageSize)
+                .build();
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeOldChanges() {
+        int purged = changeLogRepository.deleteCreatedBefore(LocalDateTime.now().minusDays(retentionDays));
+        log.info("Purged {} change log entries older than {} days", purged, retentionDays);
+    }
+
+    // Write one row per record per transaction, however many events it publishes
+    private void record(ChangeEntity entity, UUID entityId, UUID locationId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            @SuppressWarnings("unchecked")
+            Set<String> recorded = (Set<String>) TransactionSynchronizationManager.getResource(RECORDED_KEY);
+            if (recorded == null) {
+                Set<String> newRecorded = new HashSet<>();
+                TransactionSynchronizationManager.bindResource(RECORDED_KEY, newRecorded);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(RECORDED_KEY);
+                    }
+                });
+                recorded = newRecorded;
+            }
+            if (!recorded.add(entity + ":" + entityId + ":" + Objects.toString(locationId, ""))) {
+                return;
+            }
+        }
+
+        ChangeLogEntry entry = new ChangeLogEntry();
+        entry.setEntity(entity);
+        entry.setEntityId(entityId);
+        entry.setLocationId(locationId);
+        changeLogRepository.save(entry);
+    }
+
+    private static long[] parseCursor(String since) {
+        if (since == null || since.isBlank()) {
+            return new long[] {0, 0};
+        }
+        String[] parts = since.split("\\.");
+        try {
+            if (parts.length == 2) {
+                return new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid change cursor: " + since);
+    }
+
+    private static String formatCursor(ChangeLogEntry entry) {
+        return entry.getTxid() + "." + entry.getSeq();
+    }
+}
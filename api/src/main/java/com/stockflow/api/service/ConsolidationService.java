@@ -1,85 +1,279 @@
 package com.stockflow.api.service;
 
+import com.stockflow.api.dto.LocationDTO;
+import com.stockflow.api.dto.report.ConsolidationRangeReport;
 import com.stockflow.api.dto.report.ConsolidationReport;
 import com.stockflow.api.dto.report.StockSummary;
 import com.stockflow.api.enums.MovementType;
-import com.stockflow.api.model.StockMovement;
+import com.stockflow.api.repository.StockDailySnapshotRepository;
 import com.stockflow.api.repository.StockLocationRepository;
+import com.stockflow.api.repository.StockLocationRepository.OpeningStock;
 import com.stockflow.api.repository.StockMovementRepository;
-
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 
+/**
+ * Consolidation of stock per location: opening quantity, stock in, stock out
+ * and the remainder. Past days are read from stock_daily_snapshots in one range
+ * scan. The current day is consolidated live: each location on its own worker
+ * with its own read-only transaction, streaming the day's movements as narrow
+ * (item, type, quantity) rows through a server-side cursor into per-item
+ * counters, so no movement entity is built and heap use grows with the number
+ * of items rather than the number of movements.
+ *
+ * Movements without a location are not location stock and are left out.
+ */
 @Service
-@Transactional(readOnly = true)
+@Slf4j
 public class ConsolidationService {
     private final StockLocationRepository stockLocationRepository;
     private final StockMovementRepository movementRepository;
+    private final StockDailySnapshotRepository snapshotRepository;
+    private final LocationRegistry locationRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService workers;
 
     public ConsolidationService(
         StockLocationRepository stockLocationRepository,
-        StockMovementRepository movementRepository
+        StockMovementRepository movementRepository,
+        StockDailySnapshotRepository snapshotRepository,
+        LocationRegistry locationRegistry,
+        PlatformTransactionManager transactionManager,
+        @Value("${stockflow.consolidation.threads:4}") int threads
     ) {
         this.stockLocationRepository = stockLocationRepository;
         this.movementRepository = movementRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.locationRegistry = locationRegistry;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Stock rows and movements are read from one snapshot, so rewinding the stock is exact
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "consolidation");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
-    
+
     public ConsolidationReport generateReport(LocalDate date) {
-        // Get opening stock for all locations
-        Map<UUID, Map<UUID, Integer>> openingStock = stockLocationRepository
-            .findOpeningStockForDate(date);
-
-        // Get all movements for the day
-        List<StockMovement> movements = movementRepository
-            .findByDateBetween(
-                date.atStartOfDay(),
-                date.plusDays(1).atStartOfDay()
-            );
-
-        // Calculate current stock and movement totals
-        Map<UUID, Map<UUID, StockSummary>> summaries = calculateStockSummaries(
-            openingStock, 
-            movements
-        );
-
-        return new ConsolidationReport(date, summaries);
+        return new ConsolidationReport(date, summarize(date, date));
     }
 
-    private Map<UUID, Map<UUID, StockSummary>> calculateStockSummaries(
-        Map<UUID, Map<UUID, Integer>> openingStock,
-        List<StockMovement> movements
-    ) {
+    /**
+     * Totals over a range of days: the opening of the first day, the stock in and
+     * out over every day and the remainder at the end of the last day
+     */
+    public ConsolidationRangeReport generateRangeReport(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        return new ConsolidationRangeReport(startDate, endDate, summarize(startDate, endDate));
+    }
+
+    private Map<UUID, Map<UUID, StockSummary>> summarize(LocalDate startDate, LocalDate endDate) {
+        LocalDate today = LocalDate.now();
         Map<UUID, Map<UUID, StockSummary>> summaries = new HashMap<>();
 
-        // Initialize summaries with opening stock
-        openingStock.forEach((locationId, stockItems) -> {
-            stockItems.forEach((itemId, quantity) -> {
-                summaries.computeIfAbsent(locationId, k -> new HashMap<>())
-                    .put(itemId, new StockSummary(quantity, 0, 0, quantity));
+        if (startDate.isBefore(today)) {
+            LocalDate lastSnapshot = endDate.isBefore(today) ? endDate : today.minusDays(1);
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = snapshotRepository.streamBetween(startDate, lastSnapshot)) {
+                    rows.forEach(row -> {
+                        // Rows arrive in date order, so the first one seen for a pair holds its opening
+                        StockSummary summary = summaries.computeIfAbsent((UUID) row[1], k -> new HashMap<>())
+                                .computeIfAbsent((UUID) row[2], k -> new StockSummary((Integer) row[3], 0, 0, 0));
+                        summary.incoming += (Integer) row[4];
+                        summary.outgoing += (Integer) row[5];
+                        summary.remainder = (Integer) row[6];
+                    });
+                }
             });
-        });
+        }
+
+        if (!today.isBefore(startDate) && !today.isAfter(endDate)) {
+            consolidateDay(today).forEach((locationId, items) -> {
+                Map<UUID, StockSummary> location = summaries.computeIfAbsent(locationId, k -> new HashMap<>());
+                items.forEach((itemId, live) -> location.merge(itemId, live, (earlier, current) -> {
+                    earlier.incoming += current.incoming;
+                    earlier.outgoing += current.outgoing;
+                    earlier.remainder = current.remainder;
+                    return earlier;
+                }));
+            });
+        }
+        return summaries;
+    }
+
+    private Map<UUID, Map<UUID, StockSummary>> consolidateDay(LocalDate date) {
+        List<UUID> locationIds = locationRegistry.getAll().stream().map(LocationDTO::getId).toList();
+        List<CompletableFuture<Map<UUID, StockSummary>>> futures = new ArrayList<>(locationIds.size());
+        for (UUID locationId : locationIds) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> readOnlyTransaction.execute(status -> consolidateLocation(locationId, date)),
+                    workers));
+        }
+
+        Map<UUID, Map<UUID, StockSummary>> summaries = new HashMap<>();
+        try {
+            for (int i = 0; i < locationIds.size(); i++) {
+                Map<UUID, StockSummary> location = futures.get(i).join();
+                if (!location.isEmpty()) {
+                    summaries.put(locationIds.get(i), location);
+                }
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return summaries;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
 
-        // Process movements
-        movements.forEach(movement -> {
-            StockSummary summary = summaries
-                .get(movement.getLocation().getId())
-                .get(movement.getStockItem().getId());
+    private Map<UUID, StockSummary> consolidateLocation(UUID locationId, LocalDate date) {
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay();
+        ItemTotals totals = new ItemTotals();
 
-            if (movement.getType() == MovementType.IN) {
-                summary.incoming += movement.getQuantity();
+        // The latest closing, carried forward over any days not snapshotted yet
+        Optional<LocalDate> latest = snapshotRepository.findLatestSnapshotDateBefore(locationId, date);
+        if (latest.isPresent()) {
+            for (OpeningStock closing : snapshotRepository.findClosingStock(latest.get(), locationId)) {
+                int slot = totals.slot(closing.getStockItemId());
+                totals.opening[slot] = closing.getQuantity();
+            }
+            LocalDateTime carriedFrom = latest.get().plusDays(1).atStartOfDay();
+            if (carriedFrom.isBefore(start)) {
+                try (Stream<Object[]> movements = movementRepository.streamLocationMovements(locationId, carriedFrom, start)) {
+                    for (Object[] movement : (Iterable<Object[]>) movements::iterator) {
+                        int slot = totals.slot((UUID) movement[0]);
+                        totals.opening[slot] += movement[1] == MovementType.IN ? (Integer) movement[2] : -(Integer) movement[2];
+                    }
+                }
+            }
+        }
+
+        long rows = 0;
+        try (Stream<Object[]> movements = movementRepository.streamLocationMovements(locationId, start, end)) {
+            for (Object[] movement : (Iterable<Object[]>) movements::iterator) {
+                int slot = totals.slot((UUID) movement[0]);
+                if (movement[1] == MovementType.IN) {
+                    totals.incoming[slot] += (Integer) movement[2];
+                } else {
+                    totals.outgoing[slot] += (Integer) movement[2];
+                }
+                rows++;
+            }
+        }
+
+        if (latest.isEmpty()) {
+            // No snapshot yet: the current stock with the day's movements taken back out
+            for (OpeningStock current : stockLocationRepository.findCurrentStockByLocationId(locationId)) {
+                int slot = totals.slot(current.getStockItemId());
+                int quantity = current.getQuantity() != null ? current.getQuantity() : 0;
+                totals.opening[slot] = quantity - totals.incoming[slot] + totals.outgoing[slot];
+            }
+        }
+        log.debug("Consolidated {} movements over {} items at location {}", rows, totals.size, locationId);
+        return totals.toSummaries();
+    }
+
+    // Per-item counters in parallel arrays, found through an open-addressing table on the item id
+    private static final class ItemTotals {
+        private long[] idMsb = new long[256];
+        private long[] idLsb = new long[256];
+        private int[] opening = new int[256];
+        private int[] incoming = new int[256];
+        private int[] outgoing = new int[256];
+        private int size;
+
+        // Slot + 1 per entry, 0 when empty, kept at most half full
+        private int[] table = new int[512];
+
+        int slot(UUID id) {
+            long msb = id.getMostSignificantBits();
+            long lsb = id.getLeastSignificantBits();
+            int mask = table.length - 1;
+            int probe = mix(msb, lsb) & mask;
+            while (table[probe] != 0) {
+                int slot = table[probe] - 1;
+                if (idMsb[slot] == msb && idLsb[slot] == lsb) {
+                    return slot;
+                }
+                probe = (probe + 1) & mask;
+            }
+
+            int slot = size++;
+            if (slot == idMsb.length) {
+                int capacity = slot * 2;
+                idMsb = Arrays.copyOf(idMsb, capacity);
+                idLsb = Arrays.copyOf(idLsb, capacity);
+                opening = Arrays.copyOf(opening, capacity);
+                incoming = Arrays.copyOf(incoming, capacity);
+                outgoing = Arrays.copyOf(outgoing, capacity);
+            }
+            idMsb[slot] = msb;
+            idLsb[slot] = lsb;
+            if (size * 2 > table.length) {
+                rehash(table.length * 2);
             } else {
-                summary.outgoing += movement.getQuantity();
+                table[probe] = slot + 1;
             }
-            
-            summary.remainder = summary.openingStock + summary.incoming - summary.outgoing;
-        });
+            return slot;
+        }
 
-        return summaries;
+        Map<UUID, StockSummary> toSummaries() {
+            Map<UUID, StockSummary> summaries = new HashMap<>(size * 2);
+            for (int slot = 0; slot < size; slot++) {
+                summaries.put(new UUID(idMsb[slot], idLsb[slot]), new StockSummary(opening[slot],
+                        incoming[slot], outgoing[slot], opening[slot] + incoming[slot] - outgoing[slot]));
+            }
+            return summaries;
+        }
+
+        private void rehash(int tableSize) {
+            int[] newTable = new int[tableSize];
+            int mask = tableSize - 1;
+            for (int slot = 0; slot < size; slot++) {
+                int probe = mix(idMsb[slot], idLsb[slot]) & mask;
+                while (newTable[probe] != 0) {
+                    probe = (probe + 1) & mask;
+                }
+                newTable[probe] = slot + 1;
+            }
+            table = newTable;
+        }
+
+        private static int mix(long msb, long lsb) {
+            long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,211 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.exception.ResourceNotFoundException;
+import com.stockflow.api.model.StockLocation;
+import com.stockflow.api.model.StockLocationBucket;
+import com.stockflow.api.repository.StockItemRepository;
+import com.stockflow.api.repository.StockLocationBucketRepository;
+import com.stockflow.api.repository.StockLocationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Escrow mode for hot item-location pairs. The stock is split across several
+ * bucket rows so concurrent sales each lock a different bucket instead of all
+ * queueing on the single stock_locations row. A background job spreads stock
+ * back out evenly as buckets drain or new stock arrives. Sales from escrow
+ * also leave the item's global quantity alone and queue the change instead,
+ * which another job applies in batches, so they do not all update the one
+ * stock_items row either.
+ */
+@Service
+@Transactional
+@Slf4j
+public class EscrowService {
+    private static final int MAX_BUCKETS = 64;
+
+    private final StockLocationRepository stockLocationRepository;
+    private final StockLocationBucketRepository bucketRepository;
+    private final StockItemRepository stockItemRepository;
+    private final StockService stockService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public EscrowService(
+            StockLocationRepository stockLocationRepository,
+            StockLocationBucketRepository bucketRepository,
+            StockItemRepository stockItemRepository,
+            StockService stockService,
+            EntityManager entityManager,
+            TransactionTemplate transactionTemplate) {
+        this.stockLocationRepository = stockLocationRepository;
+        this.bucketRepository = bucketRepository;
+        this.stockItemRepository = stockItemRepository;
+        this.stockService = stockService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Turn escrow on with the given number of buckets, or off with 0.
+     * Existing stock is folded together and spread across the new buckets.
+     */
+    public void configureBuckets(UUID locationId, UUID stockItemId, int bucketCount) {
+        if (bucketCount < 0 || bucketCount > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Bucket count must be between 0 and " + MAX_BUCKETS);
+        }
+
+        StockLocation stockLocation = stockLocationRepository
+                .findByStockItemAndLocationWithLock(stockItemId, locationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock not found at location"));
+        List<StockLocationBucket> buckets = new ArrayList<>(
+                bucketRepository.findByStockLocationIdWithLock(stockLocation.getId()));
+        int total = stockLocation.getQuantity() + sum(buckets);
+
+        // Reuse existing bucket rows so bucket numbers stay unique within the flush
+        while (buckets.size() > bucketCount) {
+            bucketRepository.delete(buckets.remove(buckets.size() - 1));
+        }
+        while (buckets.size() < bucketCount) {
+            StockLocationBucket bucket = new StockLocationBucket();
+            bucket.setStockLocation(stockLocation);
+            bucket.setBucketNo(buckets.size());
+            bucket.setQuantity(0);
+            buckets.add(bucketRepository.save(bucket));
+        }
+
+        stockLocation.setEscrowBuckets(bucketCount);
+        distribute(stockLocation, buckets, total);
+        log.info("Escrow for item {} at location {} set to {} buckets", stockItemId, locationId, bucketCount);
+    }
+
+    /**
+     * Take stock out of an escrow-enabled row. A single bucket that can cover the
+     * quantity is used when one is free; otherwise the row and all its buckets are
+     * locked and drained together. Returns false, changing nothing, when the row
+     * does not hold enough stock.
+     */
+    public boolean tryWithdraw(StockLocation stockLocation, int quantity) {
+        if (bucketRepository.withdrawFromAnyBucket(stockLocation.getId(), quantity).isPresent()) {
+            return true;
+        }
+
+        // Lock the row before its buckets, the same order the rebalancer uses
+        entityManager.refresh(stockLocation, LockModeType.PESSIMISTIC_WRITE);
+        List<StockLocationBucket> buckets = bucketRepository.findByStockLocationIdWithLock(stockLocation.getId());
+        if (stockLocation.getQuantity() + sum(buckets) < quantity) {
+            return false;
+        }
+
+        int remaining = quantity;
+        for (StockLocationBucket bucket : buckets) {
+            int taken = Math.min(bucket.getQuantity(), remaining);
+            bucket.setQuantity(bucket.getQuantity() - taken);
+            remaining -= taken;
+        }
+        stockLocation.setQuantity(stockLocation.getQuantity() - remaining);
+        return true;
+    }
+
+    /**
+     * Return stock to an escrow-enabled row, such as from a cancelled sale. It is
+     * added to the row itself and spread across the buckets by the next rebalance.
+     */
+    public void deposit(StockLocation stockLocation, int quantity) {
+        entityManager.refresh(stockLocation, LockModeType.PESSIMISTIC_WRITE);
+        stockLocation.setQuantity(stockLocation.getQuantity() + quantity);
+    }
+
+    @Scheduled(fixedDelayString = "${stockflow.escrow.rebalance-ms:5000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void rebalanceAll() {
+        for (UUID stockLocationId : stockLocationRepository.findEscrowEnabledIds()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebalance(stockLocationId));
+            } catch (DataAccessException | PersistenceException e) {
+                // Sales are holding the buckets; try again on the next run
+                log.debug("Skipped escrow rebalance of stock location {}: {}", stockLocationId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fold the global quantity changes queued by escrow sales into their items,
+     * one item per transaction so a failing item does not hold back the rest
+     */
+    @Scheduled(fixedDelayString = "${stockflow.escrow.apply-global-ms:1000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void applyDeferredGlobalChanges() {
+        for (UUID stockItemId : stockItemRepository.findItemsWithDeferredChanges()) {
+            try {
+                transactionTemplate.executeWithoutResult(
+                        status -> stockService.applyDeferredQuantityChanges(stockItemId));
+            } catch (DataAccessException | PersistenceException e) {
+                // The changes stay queued and are retried on the next run
+                log.warn("Could not apply queued stock changes to item {}: {}", stockItemId, e.getMessage());
+            }
+        }
+    }
+
+    private void rebalance(UUID stockLocationId) {
+        StockLocation stockLocation = entityManager.find(
+                StockLocation.class,
+                stockLocationId,
+                LockModeType.PESSIMISTIC_WRITE,
+                Map.of("jakarta.persistence.lock.timeout", 0));
+        if (stockLocation == null || stockLocation.getEscrowBuckets() == 0) {
+            return;
+        }
+
+        List<StockLocationBucket> buckets = bucketRepository.findByStockLocationIdWithLockNoWait(stockLocationId);
+        if (buckets.isEmpty() || isBalanced(stockLocation, buckets)) {
+            return;
+        }
+        distribute(stockLocation, buckets, stockLocation.getQuantity() + sum(buckets));
+    }
+
+    private boolean isBalanced(StockLocation stockLocation, List<StockLocationBucket> buckets) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (StockLocationBucket bucket : buckets) {
+            min = Math.min(min, bucket.getQuantity());
+            max = Math.max(max, bucket.getQuantity());
+        }
+        return stockLocation.getQuantity() == 0 && max - min <= 1;
+    }
+
+    private void distribute(StockLocation stockLocation, List<StockLocationBucket> buckets, int total) {
+        if (buckets.isEmpty()) {
+            stockLocation.setQuantity(total);
+            return;
+        }
+
+        int share = total / buckets.size();
+        int extra = total % buckets.size();
+        for (int i = 0; i < buckets.size(); i++) {
+            buckets.get(i).setQuantity(share + (i < extra ? 1 : 0));
+        }
+        stockLocation.setQuantity(0);
+    }
+
+    private int sum(List<StockLocationBucket> buckets) {
+        int total = 0;
+        for (StockLocationBucket bucket : buckets) {
+            total += bucket.getQuantity();
+        }
+        return total;
+    }
+}
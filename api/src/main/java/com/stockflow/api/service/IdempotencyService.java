@@ -0,0 +1,210 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.model.IdempotencyRecord;
+import com.stockflow.api.repository.IdempotencyRecordRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the responses to POSTs sent with an Idempotency-Key header so a
+ * client retry gets the original response instead of applying the change twice.
+ *
+ * A key is reserved with a pending row in idempotency_keys before the request
+ * runs, and the row is filled in with the response once it succeeds. While a
+ * reservation is pending, retries are refused with a conflict; once it is older
+ * than the pending lease, the request that held it is taken to have died and a
+ * retry takes the key over. The lease must outlast the longest request, and a
+ * request that died after its change committed but before its response was
+ * stored is applied again by the retry that takes over its key.
+ *
+ * Lookups are served from a bounded in-memory map and fall back to the table,
+ * so keys evicted from memory or holding responses too large to keep in memory
+ * are still replayed.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    private static final int PENDING = 0;
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxEntries;
+    private final int maxCachedBodyBytes;
+    private final Duration ttl;
+    private final Duration pendingLease;
+
+    private final Map<String, StoredResponse> responses;
+    // Start of each reservation held by this instance, so a key taken over after its lease is left alone
+    private final Map<String, LocalDateTime> reservations = new ConcurrentHashMap<>();
+
+    public IdempotencyService(
+            IdempotencyRecordRepository recordRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${stockflow.idempotency.max-entries:100000}") int maxEntries,
+            @Value("${stockflow.idempotency.max-body-bytes:65536}") int maxCachedBodyBytes,
+            @Value("${stockflow.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${stockflow.idempotency.pending-lease-seconds:60}") long pendingLeaseSeconds) {
+        this.recordRepository = recordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxEntries = maxEntries;
+        this.maxCachedBodyBytes = maxCachedBodyBytes;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.pendingLease = Duration.ofSeconds(pendingLeaseSeconds);
+        this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > IdempotencyService.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * The stored response for a key if it is held in memory
+     */
+    public Optional<StoredResponse> findCached(String key) {
+        synchronized (responses) {
+            StoredResponse response = responses.get(key);
+            if (response != null && isExpired(response.getCreatedAt())) {
+                responses.remove(key);
+                return Optional.empty();
+            }
+            return Optional.ofNullable(response);
+        }
+    }
+
+    /**
+     * The stored response for a key, from memory or else from the table
+     */
+    public Optional<StoredResponse> find(String key) {
+        Optional<StoredResponse> cached = findCached(key);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        return recordRepository.findByIdempotencyKey(key)
+                .filter(record -> record.getStatusCode() != PENDING && !isExpired(record.getCreatedAt()))
+                .map(record -> {
+                    StoredResponse response = toStoredResponse(record);
+                    cache(key, response);
+                    return response;
+                });
+    }
+
+    /**
+     * Reserve a key for a request about to run. Returns false if the key is held
+     * by a request still within its lease, or already has a response.
+     */
+    public boolean begin(String key) {
+        // Stored at the column's precision so the reservation can be matched again
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Integer reserved = transactionTemplate.execute(status -> recordRepository.reserve(
+                UUID.randomUUID(), key, now, now.minus(ttl), now.minus(pendingLease)));
+        if (reserved == null || reserved == 0) {
+            return false;
+        }
+        reservations.put(key, now);
+        return true;
+    }
+
+    /**
+     * Release a reserved key after the request failed, so it can be retried
+     */
+    public void abandon(String key) {
+        LocalDateTime reservedAt = reservations.remove(key);
+        if (reservedAt == null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> recordRepository.deletePending(key, reservedAt));
+        } catch (DataAccessException e) {
+            // The key stays pending until its lease runs out
+            log.warn("Failed to release idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    public void complete(String key, int statusCode, String contentType, byte[] body) {
+        LocalDateTime reservedAt = reservations.remove(key);
+        if (reservedAt == null) {
+            return;
+        }
+        cache(key, new StoredResponse(statusCode, contentType, body, reservedAt));
+        try {
+            transactionTemplate.executeWithoutResult(status -> recordRepository.complete(
+                    key, reservedAt, statusCode, contentType, body, LocalDateTime.now()));
+        } catch (DataAccessException e) {
+            // The key stays pending, so a retry within the lease is refused rather than applied again
+            log.warn("Failed to store the response for idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadRecentKeys() {
+        int loaded = 0;
+        for (IdempotencyRecord record : recordRepository
+                .findByCreatedAtAfterOrderByCreatedAtAsc(LocalDateTime.now().minus(ttl))) {
+            if (record.getStatusCode() != PENDING) {
+                cache(record.getIdempotencyKey(), toStoredResponse(record));
+                loaded++;
+            }
+        }
+        log.info("Loaded {} idempotency keys", loaded);
+    }
+
+    @Scheduled(fixedDelayString = "${stockflow.idempotency.purge-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = recordRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        synchronized (responses) {
+            responses.values().removeIf(response -> isExpired(response.getCreatedAt()));
+        }
+        log.debug("Purged {} expired idempotency keys", purged);
+    }
+
+    // Large responses are only kept in the table
+    private void cache(String key, StoredResponse response) {
+        if (response.getBody() != null && response.getBody().length > maxCachedBodyBytes) {
+            return;
+        }
+        synchronized (responses) {
+            responses.put(key, response);
+        }
+    }
+
+    private boolean isExpired(LocalDateTime createdAt) {
+        return createdAt.plus(ttl).isBefore(LocalDateTime.now());
+    }
+
+    private static StoredResponse toStoredResponse(IdempotencyRecord record) {
+        return new StoredResponse(
+                record.getStatusCode(), record.getContentType(), record.getBody(), record.getCreatedAt());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class StoredResponse {
+        private final int statusCode;
+        private final String contentType;
+        private final byte[] body;
+        private final LocalDateTime createdAt;
+    }
+}
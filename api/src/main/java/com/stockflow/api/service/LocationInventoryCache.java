@@ -0,0 +1,178 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.LocationInventoryDTO;
+import com.stockflow.api.dto.StockItemDTO;
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.event.StockLocationChangedEvent;
+import com.stockflow.api.model.StockItem;
+import com.stockflow.api.repository.StockLocationRepository.InventoryRow;
+import com.stockflow.api.util.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Per-location inventory listings, kept current in place by committed stock
+ * changes. Quantity changes are applied as deltas; a change to a row the cached
+ * listing does not have yet drops the listing so the next read reloads it.
+ */
+@Component
+public class LocationInventoryCache {
+    private final int maxLocations;
+
+    // Guarded by this
+    private final Map<UUID, Inventory> inventories;
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public LocationInventoryCache(@Value("${stockflow.cache.inventory.max-locations:64}") int maxLocations) {
+        this.maxLocations = maxLocations;
+        this.inventories = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Inventory> eldest) {
+                return size() > LocationInventoryCache.this.maxLocations;
+            }
+        };
+    }
+
+    /**
+     * The inventory at a location in SKU order, loading it on a miss
+     */
+    public List<LocationInventoryDTO> get(UUID locationId, Supplier<List<InventoryRow>> loader) {
+        long loadedAt;
+        synchronized (this) {
+            Inventory inventory = inventories.get(locationId);
+            if (inventory != null) {
+                hits.increment();
+                return inventory.view(locationId);
+            }
+            loadedAt = generation;
+        }
+
+        misses.increment();
+        Inventory loaded = new Inventory(loader.get());
+        synchronized (this) {
+            // A commit since the load started may have changed rows it read
+            if (generation == loadedAt) {
+                inventories.put(locationId, loaded);
+            }
+            return loaded.view(locationId);
+        }
+    }
+
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onStockLocationChanged(StockLocationChangedEvent event) {
+        generation++;
+        Inventory inventory = inventories.get(event.getLocationId());
+        if (inventory == null) {
+            return;
+        }
+
+        Line line = inventory.lines.get(event.getStockItemId());
+        if (line == null) {
+            inventories.remove(event.getLocationId());
+            return;
+        }
+        line.quantity += event.getQuantityChange();
+        inventory.view = null;
+    }
+
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onStockItemChanged(StockItemChangedEvent event) {
+        generation++;
+        StockItem item = event.getItem();
+        StockItemDTO dto = item != null ? ModelMapper.toStockItemDTO(item) : null;
+
+        Iterator<Inventory> iterator = inventories.values().iterator();
+        while (iterator.hasNext()) {
+            Inventory inventory = iterator.next();
+            Line line = inventory.lines.get(event.getStockItemId());
+            if (line == null) {
+                continue;
+            }
+            if (dto == null) {
+                // Changed without loading the entity, so the new item columns are unknown
+                iterator.remove();
+            } else if (item.getVersion() == null || item.getVersion() >= line.itemVersion) {
+                line.item = dto;
+                line.itemVersion = item.getVersion() != null ? item.getVersion() : 0L;
+                inventory.view = null;
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hits", hits.sum());
+        metrics.put("misses", misses.sum());
+        metrics.put("locations", inventories.size());
+        metrics.put("maxLocations", maxLocations);
+        return metrics;
+    }
+
+    private static class Inventory {
+        private final Map<UUID, Line> lines = new LinkedHashMap<>();
+        private List<LocationInventoryDTO> view;
+
+        Inventory(List<InventoryRow> rows) {
+            for (InventoryRow row : rows) {
+                StockItemDTO item = StockItemDTO.builder()
+                        .id(row.getStockItemId())
+                        .name(row.getName())
+                        .sku(row.getSku())
+                        .price(row.getPrice())
+                        .quantity(row.getItemQuantity())
+                        .status(row.getStatus())
+                        .reorderThreshold(row.getReorderThreshold())
+                        .createdAt(row.getCreatedAt())
+                        .updatedAt(row.getUpdatedAt())
+                        .build();
+                long version = row.getVersion() != null ? row.getVersion() : 0L;
+                lines.put(row.getStockItemId(), new Line(item, version, row.getQuantity().intValue()));
+            }
+        }
+
+        // Callers hold the cache monitor
+        List<LocationInventoryDTO> view(UUID locationId) {
+            if (view == null) {
+                List<LocationInventoryDTO> items = new ArrayList<>(lines.size());
+                for (Line line : lines.values()) {
+                    items.add(LocationInventoryDTO.builder()
+                            .stockItem(line.item)
+                            .quantity(line.quantity)
+                            .locationId(locationId)
+                            .build());
+                }
+                view = List.copyOf(items);
+            }
+            return view;
+        }
+    }
+
+    private static class Line {
+        private StockItemDTO item;
+        private long itemVersion;
+        private int quantity;
+
+        Line(StockItemDTO item, long itemVersion, int quantity) {
+            this.item = item;
+            this.itemVersion = itemVersion;
+            this.quantity = quantity;
+        }
+    }
+}
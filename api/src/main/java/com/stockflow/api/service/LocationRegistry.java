@@ -0,0 +1,88 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.LocationDTO;
+import com.stockflow.api.event.LocationChangedEvent;
+import com.stockflow.api.model.Location;
+import com.stockflow.api.repository.LocationRepository;
+import com.stockflow.api.util.ModelMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * All locations, held in memory. There are only a handful and they rarely
+ * change, so the registry is loaded once before the application takes requests
+ * and replaced wholesale when a location change commits. Reads take no lock and
+ * run no query.
+ */
+@Component
+@Slf4j
+public class LocationRegistry implements SmartInitializingSingleton {
+    private final LocationRepository locationRepository;
+
+    // Replaced, never modified
+    private volatile Map<UUID, LocationDTO> locations = Map.of();
+    private volatile List<LocationDTO> listing = List.of();
+
+    public LocationRegistry(LocationRepository locationRepository) {
+        this.locationRepository = locationRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<UUID, LocationDTO> loaded = new LinkedHashMap<>();
+        for (Location location : locationRepository.findAll()) {
+            loaded.put(location.getId(), ModelMapper.toLocationDTO(location));
+        }
+        replace(loaded);
+        log.info("Loaded {} locations into the registry", loaded.size());
+    }
+
+    public List<LocationDTO> getAll() {
+        return listing;
+    }
+
+    public Optional<LocationDTO> find(UUID id) {
+        return Optional.ofNullable(locations.get(id));
+    }
+
+    public boolean isEmpty() {
+        return locations.isEmpty();
+    }
+
+    /**
+     * A reference to a known location for use in associations, without loading it
+     */
+    public Optional<Location> findReference(UUID id) {
+        return locations.containsKey(id)
+                ? Optional.of(locationRepository.getReferenceById(id))
+                : Optional.empty();
+    }
+
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onLocationChanged(LocationChangedEvent event) {
+        Map<UUID, LocationDTO> updated = new LinkedHashMap<>(locations);
+        if (event.isDeleted()) {
+            updated.remove(event.getLocationId());
+        } else {
+            updated.put(event.getLocationId(), ModelMapper.toLocationDTO(event.getLocation()));
+        }
+        replace(updated);
+    }
+
+    private void replace(Map<UUID, LocationDTO> updated) {
+        locations = Collections.unmodifiableMap(updated);
+        listing = List.copyOf(updated.values());
+    }
+}
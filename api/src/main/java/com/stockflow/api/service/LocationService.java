@@ -4,87 +4,110 @@ import com.stockflow.api.dto.LocationDTO;
 import com.stockflow.api.dto.LocationInventoryDTO;
 import com.stockflow.api.dto.StockItemDTO;
 import com.stockflow.api.enums.LocationType;
+import com.stockflow.api.enums.StockStatus;
+import com.stockflow.api.event.LocationChangedEvent;
+import com.stockflow.api.event.StockLocationThresholdChangedEvent;
 import com.stockflow.api.exception.ResourceNotFoundException;
 import com.stockflow.api.model.Location;
 import com.stockflow.api.model.StockLocation;
 import com.stockflow.api.repository.LocationRepository;
+import com.stockflow.api.repository.StockItemRepository;
 import com.stockflow.api.repository.StockLocationRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.Arrays;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 @Slf4j
-@RequiredArgsConstructor
 public class LocationService {
     private final LocationRepository locationRepository;
+    private final LocationRegistry locationRegistry;
     private final StockLocationRepository stockLocationRepository;
-
-    /**
-     * Get all locations as DTOs
-     */
-    public List<LocationDTO> getAllLocations() {
-        log.debug("Getting all locations");
-        
-        // First, try to get locations from locations table
-        List<Location> explicitLocations = locationRepository.findAll();
-
-        if (!explicitLocations.isEmpty()) {
-            log.debug("Found {} explicit locations", explicitLocations.size());
-            return explicitLocations.stream()
-                    .map(this::toLocationDTO)
-                    .collect(Collectors.toList());
-        }
-
-        log.info("No explicit locations found, creating default locations");
-        // If no explicit locations, create default locations
-        return createDefaultLocations();
+    private final StockItemRepository stockItemRepository;
+    private final LocationInventoryCache inventoryCache;
+    private final StockCatalogCache catalogCache;
+    private final LowStockIndex lowStockIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean seedDefaults;
+
+    public LocationService(
+            LocationRepository locationRepository,
+            LocationRegistry locationRegistry,
+            StockLocationRepository stockLocationRepository,
+            StockItemRepository stockItemRepository,
+            LocationInventoryCache inventoryCache,
+            StockCatalogCache catalogCache,
+            LowStockIndex lowStockIndex,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${stockflow.locations.seed-defaults:true}") boolean seedDefaults) {
+        this.locationRepository = locationRepository;
+        this.locationRegistry = locationRegistry;
+        this.stockLocationRepository = stockLocationRepository;
+        this.stockItemRepository = stockItemRepository;
+        this.inventoryCache = inventoryCache;
+        this.catalogCache = catalogCache;
+        this.lowStockIndex = lowStockIndex;
+        this.eventPublisher = eventPublisher;
+        this.seedDefaults = seedDefaults;
     }
 
     /**
-     * Create a set of default locations if absolutely no locations exist
+     * Get all locations as DTOs, answered from the registry
      */
-    private List<LocationDTO> createDefaultLocations() {
-        log.info("Creating default locations");
-        List<Location> defaults = Arrays.asList(
-                createAndSaveLocation("Main Warehouse", LocationType.WAREHOUSE),
-                createAndSaveLocation("Downtown Store", LocationType.STORE));
-
-        return defaults.stream()
-                .map(this::toLocationDTO)
-                .collect(Collectors.toList());
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<LocationDTO> getAllLocations() {
+        return locationRegistry.getAll();
     }
 
     /**
      * Get a location by id
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public LocationDTO getLocation(UUID id) {
         log.debug("Finding location with id: {}", id);
-        Location location = locationRepository.findById(id)
+        return locationRegistry.find(id)
                 .orElseThrow(() -> {
                     log.error("Location not found with id: {}", id);
                     return new ResourceNotFoundException("Location not found with id: " + id);
                 });
-        
-        return toLocationDTO(location);
+    }
+
+    /**
+     * Create a set of default locations if absolutely no locations exist. Runs once
+     * at startup rather than from a read request.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createDefaultLocations() {
+        if (!seedDefaults || !locationRegistry.isEmpty() || locationRepository.count() > 0) {
+            return;
+        }
+        log.info("No explicit locations found, creating default locations");
+        createAndSaveLocation("Main Warehouse", LocationType.WAREHOUSE);
+        createAndSaveLocation("Downtown Store", LocationType.STORE);
     }
 
     /**
      * Helper method to create and save a location
      */
-    private Location createAndSaveLocation(String name, LocationType type) {
+    private void createAndSaveLocation(String name, LocationType type) {
         log.debug("Creating new location: {}, type: {}", name, type);
         Location location = new Location();
         location.setName(name);
         location.setType(type);
-        return locationRepository.save(location);
+        Location savedLocation = locationRepository.save(location);
+        eventPublisher.publishEvent(new LocationChangedEvent(savedLocation.getId(), false, savedLocation));
     }
 
     /**
@@ -97,6 +120,7 @@ public class LocationService {
         location.setType(locationDTO.getType());
 
         Location savedLocation = locationRepository.save(location);
+        eventPublisher.publishEvent(new LocationChangedEvent(savedLocation.getId(), false, savedLocation));
         return toLocationDTO(savedLocation);
     }
 
@@ -115,6 +139,7 @@ public class LocationService {
         location.setType(locationDTO.getType());
 
         Location updatedLocation = locationRepository.save(location);
+        eventPublisher.publishEvent(new LocationChangedEvent(id, false, updatedLocation));
         return toLocationDTO(updatedLocation);
     }
 
@@ -137,49 +162,83 @@ public class LocationService {
         }
 
         locationRepository.delete(location);
+        eventPublisher.publishEvent(new LocationChangedEvent(id, true, null));
         log.info("Deleted location with id: {}", id);
     }
 
     /**
      * Get inventory at a location
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<LocationInventoryDTO> getLocationInventory(UUID locationId) {
+        return getLocationInventory(locationId, null, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get one page of the inventory at a location in SKU order, optionally only
+     * items with the given status. Listings come from one projection query and are
+     * cached per location. Cache hits need no connection; a miss runs the query in
+     * the repository's own read-only transaction.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<LocationInventoryDTO> getLocationInventory(UUID locationId, StockStatus status, int page, int size) {
         log.debug("Getting inventory for location with id: {}", locationId);
         
         // First verify the location exists
-        locationRepository.findById(locationId)
+        locationRegistry.find(locationId)
+                .orElseThrow(() -> {
+                    log.error("Location not found with id: {}", locationId);
+                    return new ResourceNotFoundException("Location not found with id: " + locationId);
+                });
+
+        List<LocationInventoryDTO> inventory = inventoryCache.get(locationId,
+                () -> stockLocationRepository.findInventoryByLocationId(locationId));
+        log.debug("Found {} stock items at location with id: {}", inventory.size(), locationId);
+
+        if (status == null && page == 0 && size >= inventory.size()) {
+            return inventory;
+        }
+        return inventory.stream()
+                .filter(line -> status == null || line.getStockItem().getStatus() == status)
+                .skip((long) Math.max(page, 0) * Math.max(size, 1))
+                .limit(Math.max(size, 1))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the items that are low on stock at a location, answered from the low-stock index
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<LocationInventoryDTO> getLowStockInventory(UUID locationId) {
+        locationRegistry.find(locationId)
                 .orElseThrow(() -> {
                     log.error("Location not found with id: {}", locationId);
                     return new ResourceNotFoundException("Location not found with id: " + locationId);
                 });
 
-        // Get stock items at this location
-        List<StockLocation> stockLocations = stockLocationRepository.findByLocationId(locationId);
-        log.debug("Found {} stock items at location with id: {}", stockLocations.size(), locationId);
-
-        // Convert to DTOs
-        return stockLocations.stream()
-                .map(sl -> {
-                    StockItemDTO stockItemDTO = StockItemDTO.builder()
-                            .id(sl.getStockItem().getId())
-                            .name(sl.getStockItem().getName())
-                            .sku(sl.getStockItem().getSku())
-                            .price(sl.getStockItem().getPrice())
-                            .quantity(sl.getStockItem().getQuantity())
-                            .status(sl.getStockItem().getStatus())
-                            .createdAt(sl.getStockItem().getCreatedAt())
-                            .updatedAt(sl.getStockItem().getUpdatedAt())
-                            .build();
-
-                    return LocationInventoryDTO.builder()
-                            .stockItem(stockItemDTO)
-                            .quantity(sl.getQuantity())
-                            .locationId(locationId)
-                            .build();
-                })
+        Map<UUID, Integer> lowStock = lowStockIndex.getLowStockAtLocation(locationId);
+        return catalogCache.getAll(lowStock.keySet(), stockItemRepository::findAllById).stream()
+                .sorted(Comparator.comparing(StockItemDTO::getSku))
+                .map(item -> LocationInventoryDTO.builder()
+                        .stockItem(item)
+                        .quantity(lowStock.get(item.getId()))
+                        .locationId(locationId)
+                        .build())
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Set or clear the reorder threshold for an item at a location
+     */
+    public void setReorderThreshold(UUID locationId, UUID stockItemId, Integer reorderThreshold) {
+        StockLocation stockLocation = stockLocationRepository.findByStockItemIdAndLocationId(stockItemId, locationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock item not found at location"));
+
+        stockLocation.setReorderThreshold(reorderThreshold);
+        eventPublisher.publishEvent(
+                new StockLocationThresholdChangedEvent(locationId, stockItemId, reorderThreshold));
+    }
+
     // Helper method to convert Location entity to LocationDTO
     private LocationDTO toLocationDTO(Location location) {
         return LocationDTO.builder()
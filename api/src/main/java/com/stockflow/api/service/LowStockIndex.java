@@ -0,0 +1,209 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.StockLevelUpdate;
+import com.stockflow.api.enums.StockStatus;
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.event.StockLocationChangedEvent;
+import com.stockflow.api.event.StockLocationThresholdChangedEvent;
+import com.stockflow.api.model.StockItem;
+import com.stockflow.api.repository.StockItemRepository;
+import com.stockflow.api.repository.StockItemRepository.StockLevel;
+import com.stockflow.api.repository.StockLocationRepository;
+import com.stockflow.api.repository.StockLocationRepository.LocationStockLevel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Items that are low on stock, overall and per location. The index is built
+ * once before the application takes requests and then updated from committed
+ * stock changes, so each write costs a few map operations and reads never scan
+ * stock_items or stock_locations.
+ *
+ * An item is low when its quantity is above zero and at or below its threshold,
+ * matching the LOW_STOCK status; inactive items are never listed. A location row uses its own threshold, then the
+ * item's, then the configured default.
+ */
+@Component
+@Slf4j
+public class LowStockIndex implements SmartInitializingSingleton {
+    private final StockItemRepository stockItemRepository;
+    private final StockLocationRepository stockLocationRepository;
+    private final int defaultThreshold;
+
+    // All guarded by this
+    private final Map<UUID, Integer> itemThresholds = new HashMap<>();
+    private final Map<UUID, Long> itemVersions = new HashMap<>();
+    private final Set<UUID> lowItems = new HashSet<>();
+    private final Set<UUID> inactiveItems = new HashSet<>();
+    private final Map<UUID, Map<UUID, LocationStock>> locations = new HashMap<>();
+
+    public LowStockIndex(
+            StockItemRepository stockItemRepository,
+            StockLocationRepository stockLocationRepository,
+            @Value("${stockflow.stock.low-stock-threshold:10}") int defaultThreshold) {
+        this.stockItemRepository = stockItemRepository;
+        this.stockLocationRepository = stockLocationRepository;
+        this.defaultThreshold = defaultThreshold;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<StockLevel> items = stockItemRepository.findAllStockLevels();
+        List<LocationStockLevel> rows = stockLocationRepository.findAllStockLevels();
+
+        synchronized (this) {
+            for (StockLevel item : items) {
+                if (item.getReorderThreshold() != null) {
+                    itemThresholds.put(item.getStockItemId(), item.getReorderThreshold());
+                }
+                if (item.getStatus() == StockStatus.INACTIVE) {
+                    inactiveItems.add(item.getStockItemId());
+                } else if (isLow(item.getQuantity(), itemThreshold(item.getStockItemId()))) {
+                    lowItems.add(item.getStockItemId());
+                }
+            }
+            for (LocationStockLevel row : rows) {
+                LocationStock stock = new LocationStock(row.getQuantity().intValue(), row.getReorderThreshold());
+                locations.computeIfAbsent(row.getLocationId(), k -> new HashMap<>())
+                        .put(row.getStockItemId(), stock);
+                evaluate(stock, row.getStockItemId());
+            }
+        }
+        log.info("Built low-stock index: {} items, {} location rows", items.size(), rows.size());
+    }
+
+    public synchronized List<UUID> getLowStockItemIds() {
+        return List.copyOf(lowItems);
+    }
+
+    /**
+     * Quantities of the items that are low at a location, by item id
+     */
+    public synchronized Map<UUID, Integer> getLowStockAtLocation(UUID locationId) {
+        Map<UUID, Integer> low = new HashMap<>();
+        locations.getOrDefault(locationId, Map.of()).forEach((itemId, stock) -> {
+            if (stock.low) {
+                low.put(itemId, stock.quantity);
+            }
+        });
+        return low;
+    }
+
+    /**
+     * Current quantity and status of an item at a location, if it has a row there
+     */
+    public synchronized Optional<StockLevelUpdate> getLevelAtLocation(UUID locationId, UUID itemId) {
+        LocationStock stock = locations.getOrDefault(locationId, Map.of()).get(itemId);
+        if (stock == null) {
+            return Optional.empty();
+        }
+        StockStatus status = stock.quantity <= 0 ? StockStatus.OUT_STOCK
+                : stock.low ? StockStatus.LOW_STOCK
+                : StockStatus.ACTIVE;
+        return Optional.of(StockLevelUpdate.builder()
+                .stockItemId(itemId)
+                .locationId(locationId)
+                .quantity(stock.quantity)
+                .status(status)
+                .build());
+    }
+
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onStockItemChanged(StockItemChangedEvent event) {
+        UUID itemId = event.getStockItemId();
+        Long applied = itemVersions.get(itemId);
+        if (applied != null && applied > event.getVersion()) {
+            // A later commit's listener ran first
+            return;
+        }
+        itemVersions.put(itemId, event.getVersion());
+
+        StockItem item = event.getItem();
+        // Conditional updates set the status from the quantity, which also clears INACTIVE
+        if (item != null && item.getStatus() == StockStatus.INACTIVE) {
+            inactiveItems.add(itemId);
+        } else {
+            inactiveItems.remove(itemId);
+        }
+
+        if (item != null && !Objects.equals(item.getReorderThreshold(), itemThresholds.get(itemId))) {
+            if (item.getReorderThreshold() != null) {
+                itemThresholds.put(itemId, item.getReorderThreshold());
+            } else {
+                itemThresholds.remove(itemId);
+            }
+            // Location rows without their own threshold follow the item's
+            for (Map<UUID, LocationStock> rows : locations.values()) {
+                LocationStock stock = rows.get(itemId);
+                if (stock != null && stock.threshold == null) {
+                    evaluate(stock, itemId);
+                }
+            }
+        }
+
+        if (!inactiveItems.contains(itemId) && isLow(event.getQuantity(), itemThreshold(itemId))) {
+            lowItems.add(itemId);
+        } else {
+            lowItems.remove(itemId);
+        }
+    }
+
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onStockLocationChanged(StockLocationChangedEvent event) {
+        // New rows start at zero, so the change is also the new quantity
+        LocationStock stock = locations.computeIfAbsent(event.getLocationId(), k -> new HashMap<>())
+                .computeIfAbsent(event.getStockItemId(), k -> new LocationStock(0, null));
+        stock.quantity += event.getQuantityChange();
+        evaluate(stock, event.getStockItemId());
+    }
+
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onThresholdChanged(StockLocationThresholdChangedEvent event) {
+        LocationStock stock = locations.getOrDefault(event.getLocationId(), Map.of()).get(event.getStockItemId());
+        if (stock != null) {
+            stock.threshold = event.getReorderThreshold();
+            evaluate(stock, event.getStockItemId());
+        }
+    }
+
+    private void evaluate(LocationStock stock, UUID itemId) {
+        int threshold = stock.threshold != null ? stock.threshold : itemThreshold(itemId);
+        stock.low = isLow(stock.quantity, threshold);
+    }
+
+    private int itemThreshold(UUID itemId) {
+        return itemThresholds.getOrDefault(itemId, defaultThreshold);
+    }
+
+    private static boolean isLow(int quantity, int threshold) {
+        return quantity > 0 && quantity <= threshold;
+    }
+
+    private static class LocationStock {
+        private int quantity;
+        private Integer threshold;
+        private boolean low;
+
+        LocationStock(int quantity, Integer threshold) {
+            this.quantity = quantity;
+            this.threshold = threshold;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.stockflow.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.stockflow.api.dto.report.StockMovementReport;
+import com.stockflow.api.enums.ExportFormat;
+import com.stockflow.api.repository.StockMovementRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Movement report exports written row by row. Rows are read through a
+ * server-side cursor and written to the output as they arrive, so memory stays
+ * the same whatever the date range. The output is flushed every flush-rows rows
+ * so clients see progress and a compressing stream underneath can emit blocks.
+ */
+@Service
+@Slf4j
+public class MovementExportService {
+    private static final String CSV_HEADER = "item_name,sku,type,quantity,date,reference\n";
+
+    private final StockMovementRepository movementRepository;
+    private final ObjectWriter rowWriter;
+    private final int flushRows;
+
+    public MovementExportService(
+            StockMovementRepository movementRepository,
+            ObjectMapper objectMapper,
+            @Value("${stockflow.reports.export.flush-rows:1000}") int flushRows) {
+        this.movementRepository = movementRepository;
+        // Rows share one buffered writer, flushed and closed here rather than by each row
+        this.rowWriter = objectMapper.writerFor(StockMovementReport.class)
+                .withoutFeatures(JsonGenerator.Feature.AUTO_CLOSE_TARGET, JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        this.flushRows = flushRows;
+    }
+
+    /**
+     * Writes the movements between the dates, newest first, and returns the number
+     * of rows written. The output is flushed but not closed.
+     */
+    @Transactional(readOnly = true)
+    public long exportMovements(LocalDateTime startDate, LocalDateTime endDate, ExportFormat format,
+            OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+
+        long rows = 0;
+        try (Stream<StockMovementReport> movements = movementRepository.streamMovementsInPeriod(startDate, endDate)) {
+            for (StockMovementReport movement : (Iterable<StockMovementReport>) movements::iterator) {
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, movement);
+                } else {
+                    rowWriter.writeValue(writer, movement);
+                    writer.write('\n');
+                }
+                if (++rows % flushRows == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        log.debug("Exported {} movements from {} to {} as {}", rows, startDate, endDate, format);
+        return rows;
+    }
+
+    private static void writeCsv(Writer writer, StockMovementReport movement) throws IOException {
+        writeField(writer, movement.getItemName());
+        writer.write(',');
+        writeField(writer, movement.getSku());
+        writer.write(',');
+        writer.write(String.valueOf(movement.getType()));
+        writer.write(',');
+        writer.write(String.valueOf(movement.getQuantity()));
+        writer.write(',');
+        writer.write(String.valueOf(movement.getDate()));
+        writer.write(',');
+        writeField(writer, movement.getReference());
+        writer.write('\n');
+    }
+
+    // Quoted only when the value holds a separator, a quote or a line break
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
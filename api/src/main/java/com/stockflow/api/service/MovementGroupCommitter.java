@@ -0,0 +1,212 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.StockMovementRequest;
+import com.stockflow.api.model.StockMovement;
+import com.stockflow.api.service.StockService.MovementOutcome;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit for bursts of movements on the same stock item. Movements that
+ * arrive within a short window are queued per item and applied together as one
+ * quantity update and one batched insert in a single transaction. Each caller's
+ * future completes only after that shared transaction has committed.
+ */
+@Service
+@Slf4j
+public class MovementGroupCommitter {
+    private final StockService stockService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final long timeoutMs;
+
+    private final Map<UUID, PendingBatch> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService flushExecutor;
+
+    public MovementGroupCommitter(
+            StockService stockService,
+            TransactionTemplate transactionTemplate,
+            @Value("${stockflow.movements.group-commit.enabled:false}") boolean enabled,
+            @Value("${stockflow.movements.group-commit.window-ms:2}") long windowMs,
+            @Value("${stockflow.movements.group-commit.max-batch-size:200}") int maxBatchSize,
+            @Value("${stockflow.movements.group-commit.threads:4}") int threads,
+            @Value("${stockflow.movements.group-commit.timeout-ms:10000}") long timeoutMs) {
+        this.stockService = stockService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutMs = timeoutMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "movement-group-commit-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flushExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "movement-group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record a movement through the group-commit stage, blocking until the
+     * group it joined has committed or the timeout runs out
+     */
+    public StockMovement record(StockMovementRequest request) {
+        try {
+            return submit(request).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // The batch may still commit, so the caller cannot assume the movement was not recorded
+            throw new IllegalStateException("Timed out waiting for the movement to be committed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the movement to be committed");
+        }
+    }
+
+    public CompletableFuture<StockMovement> submit(StockMovementRequest request) {
+        CompletableFuture<StockMovement> future = new CompletableFuture<>();
+        while (true) {
+            PendingBatch batch = pending.computeIfAbsent(request.getStockItemId(), this::openBatch);
+            int size = batch.add(request, future);
+            if (size > 0) {
+                if (size >= maxBatchSize) {
+                    dispatch(batch);
+                }
+                return future;
+            }
+            // The batch closed before we joined it; its item gets a fresh one
+        }
+    }
+
+    private PendingBatch openBatch(UUID stockItemId) {
+        PendingBatch batch = new PendingBatch(stockItemId);
+        try {
+            scheduler.schedule(() -> dispatch(batch), windowMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Group commit is shut down");
+        }
+        return batch;
+    }
+
+    private void dispatch(PendingBatch batch) {
+        try {
+            flushExecutor.execute(() -> flush(batch));
+        } catch (RejectedExecutionException e) {
+            fail(batch, new IllegalStateException("Group commit is shut down"));
+        }
+    }
+
+    // Fails every caller in a batch that has not started flushing
+    private void fail(PendingBatch batch, RuntimeException failure) {
+        if (!batch.close()) {
+            return;
+        }
+        pending.remove(batch.stockItemId, batch);
+        batch.futures.forEach(future -> future.completeExceptionally(failure));
+    }
+
+    private void flush(PendingBatch batch) {
+        if (!batch.close()) {
+            return;
+        }
+        pending.remove(batch.stockItemId, batch);
+
+        List<MovementOutcome> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> stockService.applyMovements(batch.requests));
+        } catch (RuntimeException e) {
+            log.debug("Group commit of {} movements for item {} failed: {}",
+                    batch.requests.size(), batch.stockItemId, e.getMessage());
+            batch.futures.forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+
+        for (int i = 0; i < outcomes.size(); i++) {
+            MovementOutcome outcome = outcomes.get(i);
+            if (outcome.isApplied()) {
+                batch.futures.get(i).complete(outcome.getMovement());
+            } else {
+                batch.futures.get(i).completeExceptionally(outcome.getFailure());
+            }
+        }
+    }
+
+    /**
+     * Flush the batches still waiting for their window, give the flushes a moment
+     * to commit, then fail anything left so no caller is stranded
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pending.values().forEach(this::dispatch);
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Group commit flushes did not finish within {} ms of shutdown", timeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.values().forEach(batch -> fail(batch, new IllegalStateException("Group commit is shut down")));
+    }
+
+    private static final class PendingBatch {
+        private final UUID stockItemId;
+        private final List<StockMovementRequest> requests = new ArrayList<>();
+        private final List<CompletableFuture<StockMovement>> futures = new ArrayList<>();
+        private boolean closed;
+
+        private PendingBatch(UUID stockItemId) {
+            this.stockItemId = stockItemId;
+        }
+
+        // Returns the new batch size, or 0 if the batch is already being flushed
+        synchronized int add(StockMovementRequest request, CompletableFuture<StockMovement> future) {
+            if (closed) {
+                return 0;
+            }
+            requests.add(request);
+            futures.add(future);
+            return requests.size();
+        }
+
+        synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.repository.StockMovementRepository;
+import com.stockflow.api.repository.StockMovementRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Tails stock_movements into hourly rollups, off the write path. An hour is only
+ * rolled up once it ended more than the grace period ago, and the last few hours
+ * behind the watermark are rolled up again on every run, so movements committed
+ * well after their timestamp are still counted. Each hour is deleted and
+ * recomputed from the raw rows in one transaction together with the watermark,
+ * so a run can stop anywhere and hours can be replayed by moving the watermark
+ * back without counting anything twice.
+ */
+@Service
+@Slf4j
+public class MovementRollupService {
+    static final String TAILER = "stock_movements_hourly";
+
+    private final StockMovementRollupRepository rollupRepository;
+    private final StockMovementRepository movementRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long graceMinutes;
+    private final int maxHoursPerRun;
+    private final int rerollHours;
+
+    public MovementRollupService(
+            StockMovementRollupRepository rollupRepository,
+            StockMovementRepository movementRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${stockflow.rollups.grace-minutes:5}") long graceMinutes,
+            @Value("${stockflow.rollups.max-hours-per-run:168}") int maxHoursPerRun,
+            @Value("${stockflow.rollups.reroll-hours:3}") int rerollHours) {
+        this.rollupRepository = rollupRepository;
+        this.movementRepository = movementRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.graceMinutes = graceMinutes;
+        this.maxHoursPerRun = maxHoursPerRun;
+        this.rerollHours = rerollHours;
+    }
+
+    /**
+     * Start of the first hour not yet rolled up
+     */
+    public Optional<LocalDateTime> getWatermark() {
+        return rollupRepository.findWatermark(TAILER);
+    }
+
+    @Scheduled(fixedDelayString = "${stockflow.rollups.interval-ms:60000}")
+    public synchronized void rollUp() {
+        LocalDateTime limit = LocalDateTime.now().minusMinutes(graceMinutes).truncatedTo(ChronoUnit.HOURS);
+        Optional<LocalDateTime> watermark = getWatermark();
+
+        // Pick up movements that committed after their hour was rolled up, like the latest snapshot day
+        watermark.ifPresent(end -> {
+            for (LocalDateTime start = end.minusHours(rerollHours); start.isBefore(end); start = start.plusHours(1)) {
+                LocalDateTime bucketStart = start;
+                transactionTemplate.executeWithoutResult(status -> rollUpHour(bucketStart));
+            }
+        });
+
+        // The first run starts from the oldest movement, backfilling a bounded number of hours per run
+        LocalDateTime hour = watermark.orElseGet(() -> movementRepository.findEarliestCreatedAt()
+                .map(earliest -> earliest.truncatedTo(ChronoUnit.HOURS))
+                .orElse(limit));
+
+        int hours = 0;
+        for (; hour.isBefore(limit) && hours < maxHoursPerRun; hour = hour.plusHours(1), hours++) {
+            LocalDateTime start = hour;
+            transactionTemplate.executeWithoutResult(status -> {
+                rollUpHour(start);
+                rollupRepository.saveWatermark(TAILER, start.plusHours(1));
+            });
+        }
+        if (hours == 0 && watermark.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> rollupRepository.saveWatermark(TAILER, limit));
+        }
+        if (hours > 0) {
+            log.debug("Rolled up {} hours of stock movements up to {}", hours, hour);
+        }
+    }
+
+    private void rollUpHour(LocalDateTime start) {
+        rollupRepository.deleteBucket(start);
+        rollupRepository.rollUpBucket(start, start.plusHours(1));
+    }
+}
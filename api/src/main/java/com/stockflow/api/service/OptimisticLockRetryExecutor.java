@@ -0,0 +1,168 @@
+package com.stockflow.api.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Retries stock-mutating operations that lose an optimistic (or lock) conflict.
+ * Attempts are bounded, backoff is exponential with full jitter, and each stock
+ * item has a retry budget per time window so a very hot SKU cannot turn into a
+ * retry storm. Operations must start their own transaction, so this is called
+ * from outside the transactional services.
+ */
+@Component
+@Slf4j
+public class OptimisticLockRetryExecutor {
+    private final EntityManager entityManager;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final int budgetPerItem;
+    private final long budgetWindowMs;
+
+    private final Map<UUID, RetryBudget> budgets = new ConcurrentHashMap<>();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong budgetDenied = new AtomicLong();
+
+    public OptimisticLockRetryExecutor(
+            EntityManager entityManager,
+            @Value("${stockflow.retry.max-attempts:4}") int maxAttempts,
+            @Value("${stockflow.retry.base-backoff-ms:5}") long baseBackoffMs,
+            @Value("${stockflow.retry.max-backoff-ms:200}") long maxBackoffMs,
+            @Value("${stockflow.retry.budget-per-item:50}") int budgetPerItem,
+            @Value("${stockflow.retry.budget-window-ms:1000}") long budgetWindowMs) {
+        this.entityManager = entityManager;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.budgetPerItem = budgetPerItem;
+        this.budgetWindowMs = budgetWindowMs;
+    }
+
+    public <T> T execute(Collection<UUID> itemIds, Supplier<T> operation) {
+        int attempt = 1;
+        while (true) {
+            try {
+                T result = operation.get();
+                if (attempt > 1) {
+                    recovered.incrementAndGet();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+
+                conflicts.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    exhausted.incrementAndGet();
+                    log.warn("Giving up on stock items {} after {} conflicting attempts", itemIds, attempt);
+                    throw e;
+                }
+                if (!acquireBudget(itemIds)) {
+                    budgetDenied.incrementAndGet();
+                    log.warn("Retry budget exhausted for stock items {}", itemIds);
+                    throw e;
+                }
+
+                retries.incrementAndGet();
+                // An open-in-view persistence context still holds the stale entities
+                entityManager.clear();
+                backoff(attempt);
+                attempt++;
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("conflicts", conflicts.get());
+        metrics.put("retries", retries.get());
+        metrics.put("recovered", recovered.get());
+        metrics.put("exhausted", exhausted.get());
+        metrics.put("budgetDenied", budgetDenied.get());
+        return metrics;
+    }
+
+    // Drop budgets for items that have not conflicted recently
+    @Scheduled(fixedDelayString = "${stockflow.retry.budget-cleanup-ms:60000}")
+    public void evictIdleBudgets() {
+        long now = System.currentTimeMillis();
+        budgets.values().removeIf(budget -> budget.isIdle(now, budgetWindowMs));
+    }
+
+    private boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof PessimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean acquireBudget(Collection<UUID> itemIds) {
+        long now = System.currentTimeMillis();
+        for (UUID itemId : itemIds) {
+            RetryBudget budget = budgets.computeIfAbsent(itemId, id -> new RetryBudget());
+            if (!budget.tryAcquire(now, budgetWindowMs, budgetPerItem)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (delay == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private static final class RetryBudget {
+        private long windowStart;
+        private int used;
+
+        synchronized boolean tryAcquire(long now, long windowMs, int limit) {
+            if (now - windowStart >= windowMs) {
+                windowStart = now;
+                used = 0;
+            }
+            if (used >= limit) {
+                return false;
+            }
+            used++;
+            return true;
+        }
+
+        synchronized boolean isIdle(long now, long windowMs) {
+            return now - windowStart >= windowMs;
+        }
+    }
+}
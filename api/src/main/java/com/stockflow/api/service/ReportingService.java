@@ -1,16 +1,31 @@
 package com.stockflow.api.service;
 
+import com.stockflow.api.dto.StockItemDTO;
 import com.stockflow.api.dto.report.*;
+import com.stockflow.api.enums.MovementType;
+import com.stockflow.api.model.StockMovementRollup;
 import com.stockflow.api.repository.SaleRepository;
 import com.stockflow.api.repository.StockItemRepository;
 import com.stockflow.api.repository.StockMovementRepository;
+import com.stockflow.api.repository.StockMovementRollupRepository;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -19,12 +34,107 @@ public class ReportingService {
     private final StockItemRepository stockItemRepository;
     private final StockMovementRepository movementRepository;
     private final SaleRepository saleRepository;
+    private final StockMovementRollupRepository rollupRepository;
+    private final MovementRollupService rollupService;
+    private final StockCatalogCache catalogCache;
 
+    /**
+     * Every item with its stock value and the number of movements and sales
+     * between the dates, both inclusive. The counts come from two separate
+     * aggregates keyed by item, movements from the hourly rollups, and are joined
+     * to the catalog here, so no query multiplies movements by sale lines.
+     */
     public List<StockReport> generateStockReport(LocalDateTime startDate, LocalDateTime endDate) {
-        return stockItemRepository.generateStockReport(startDate, endDate);
+        Map<UUID, Long> movementCounts = new HashMap<>();
+        for (MovementSummary summary : summarizeMovements(startDate, endDate.plus(1, ChronoUnit.MICROS)).values()) {
+            movementCounts.merge(summary.getStockItemId(), summary.getMovementCount(), Long::sum);
+        }
+        Map<UUID, Long> salesCounts = new HashMap<>();
+        for (Object[] row : saleRepository.countSalesByItem(startDate, endDate)) {
+            salesCounts.put((UUID) row[0], (Long) row[1]);
+        }
+
+        return catalogCache.getAll(stockItemRepository::findAll).stream()
+                .sorted(Comparator.comparing(StockItemDTO::getSku))
+                .map(item -> new StockReport(
+                        item.getSku(),
+                        item.getName(),
+                        item.getQuantity(),
+                        item.getStatus(),
+                        item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())),
+                        movementCounts.get(item.getId()),
+                        salesCounts.get(item.getId())))
+                .collect(Collectors.toList());
     }
 
     public List<StockMovementReport> generateMovementReport(LocalDateTime startDate, LocalDateTime endDate) {
         return movementRepository.findMovementsInPeriod(startDate, endDate);
     }
-}
\ No newline at end of file
+
+    /**
+     * Movement counts and quantities per item, location and type from startDate up
+     * to but excluding endDate. Whole hours that have been rolled up are read from
+     * the hourly rollups; only the partial hours at the edges and the hours after
+     * the rollup watermark are read from raw movements.
+     */
+    public List<MovementSummary> generateMovementSummary(LocalDateTime startDate, LocalDateTime endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+
+        Map<String, MovementSummary> summaries = summarizeMovements(startDate, endDate);
+        Set<UUID> itemIds = new HashSet<>();
+        summaries.values().forEach(summary -> itemIds.add(summary.getStockItemId()));
+        Map<UUID, StockItemDTO> items = catalogCache.getAll(itemIds, stockItemRepository::findAllById).stream()
+                .collect(Collectors.toMap(StockItemDTO::getId, Function.identity()));
+        summaries.values().forEach(summary -> {
+            StockItemDTO item = items.get(summary.getStockItemId());
+            if (item != null) {
+                summary.setSku(item.getSku());
+                summary.setItemName(item.getName());
+            }
+        });
+
+        return summaries.values().stream()
+                .sorted(Comparator.comparing(MovementSummary::getSku, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(summary -> String.valueOf(summary.getLocationId()))
+                        .thenComparing(MovementSummary::getType))
+                .collect(Collectors.toList());
+    }
+
+    // Whole rolled-up hours from the rollups, the partial hours at the edges and hours past the watermark from raw rows
+    private Map<String, MovementSummary> summarizeMovements(LocalDateTime startDate, LocalDateTime endDate) {
+        LocalDateTime rolledFrom = startDate.truncatedTo(ChronoUnit.HOURS);
+        if (rolledFrom.isBefore(startDate)) {
+            rolledFrom = rolledFrom.plusHours(1);
+        }
+        LocalDateTime rolledTo = endDate.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime watermark = rollupService.getWatermark().orElse(rolledFrom);
+        if (watermark.isBefore(rolledTo)) {
+            rolledTo = watermark;
+        }
+
+        Map<String, MovementSummary> summaries = new LinkedHashMap<>();
+        if (rolledFrom.isBefore(rolledTo)) {
+            add(summaries, movementRepository.summarizeBetween(startDate, rolledFrom));
+            add(summaries, rollupRepository.summarizeBetween(rolledFrom, rolledTo));
+            add(summaries, movementRepository.summarizeBetween(rolledTo, endDate));
+        } else {
+            add(summaries, movementRepository.summarizeBetween(startDate, endDate));
+        }
+        return summaries;
+    }
+
+    // Rows of (item, location, type, count, quantity), merged into the summaries
+    private static void add(Map<String, MovementSummary> summaries, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            UUID itemId = (UUID) row[0];
+            UUID locationId = StockMovementRollup.NO_LOCATION.equals(row[1]) ? null : (UUID) row[1];
+            MovementType type = (MovementType) row[2];
+            MovementSummary summary = summaries.computeIfAbsent(itemId + ":" + locationId + ":" + type,
+                    k -> MovementSummary.builder().stockItemId(itemId).locationId(locationId).type(type).build());
+            summary.setMovementCount(summary.getMovementCount() + ((Number) row[3]).longValue());
+            summary.setQuantity(summary.getQuantity() + ((Number) row[4]).longValue());
+        }
+    }
+}
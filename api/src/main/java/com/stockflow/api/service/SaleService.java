@@ -5,6 +5,7 @@ import com.stockflow.api.dto.SaleItemRequest;
 import com.stockflow.api.dto.StockMovementRequest;
 import com.stockflow.api.enums.MovementType;
 import com.stockflow.api.enums.SaleStatus;
+import com.stockflow.api.event.StockLocationChangedEvent;
 import com.stockflow.api.exception.InsufficientStockException;
 import com.stockflow.api.exception.ResourceNotFoundException;
 import com.stockflow.api.model.Location;
@@ -12,18 +13,26 @@ import com.stockflow.api.model.Sale;
 import com.stockflow.api.model.SaleItem;
 import com.stockflow.api.model.StockItem;
 import com.stockflow.api.model.StockLocation;
+import com.stockflow.api.model.StockMovement;
 import com.stockflow.api.repository.SaleRepository;
 import com.stockflow.api.repository.StockItemRepository;
 import com.stockflow.api.repository.StockLocationRepository;
-import com.stockflow.api.repository.LocationRepository;
+import com.stockflow.api.repository.StockMovementRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 
 @Service
@@ -33,29 +42,46 @@ public class SaleService {
     private final SaleRepository saleRepository;
     private final StockItemRepository stockItemRepository;
     private final StockLocationRepository stockLocationRepository;
-    private final LocationRepository locationRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final LocationRegistry locationRegistry;
     private final StockService stockService;
+    private final EscrowService escrowService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean atomicUpdates;
     
     public SaleService(
         SaleRepository saleRepository,
         StockItemRepository stockItemRepository,
         StockLocationRepository stockLocationRepository,
-        LocationRepository locationRepository,
-        StockService stockService
+        StockMovementRepository stockMovementRepository,
+        LocationRegistry locationRegistry,
+        StockService stockService,
+        EscrowService escrowService,
+        ApplicationEventPublisher eventPublisher,
+        @Value("${stockflow.stock.atomic-updates:false}") boolean atomicUpdates
     ) {
         this.saleRepository = saleRepository;
         this.stockItemRepository = stockItemRepository;
         this.stockLocationRepository = stockLocationRepository;
-        this.locationRepository = locationRepository;
+        this.stockMovementRepository = stockMovementRepository;
+        this.locationRegistry = locationRegistry;
         this.stockService = stockService;
+        this.escrowService = escrowService;
+        this.eventPublisher = eventPublisher;
+        this.atomicUpdates = atomicUpdates;
     }
     
+    /**
+     * Create a sale in a single pass: the location, items and location stock are
+     * each loaded once, availability is checked in memory and all writes are
+     * flushed as batches on commit.
+     */
     @Transactional
     public Sale createSale(CreateSaleRequest request) {
         // Get the location for the sale
         Location location = null;
         if (request.getLocationId() != null) {
-            location = locationRepository.findById(request.getLocationId())
+            location = locationRegistry.findReference(request.getLocationId())
                 .orElseThrow(() -> new ResourceNotFoundException("Location not found"));
         }
         
@@ -67,71 +93,63 @@ public class SaleService {
         sale.setStatus(SaleStatus.PENDING);
         sale.setLocation(location); // Set the location for the sale
         
+        // Merge repeated lines and sort by item so rows are always locked in the same order
+        Map<UUID, Integer> requested = new TreeMap<>();
+        for (SaleItemRequest itemRequest : request.getItems()) {
+            requested.merge(itemRequest.getStockItemId(), itemRequest.getQuantity(), Integer::sum);
+        }
+
+        // Version-checked updates on flush guard the items against concurrent sales
+        Map<UUID, StockItem> stockItems = new HashMap<>();
+        for (StockItem stockItem : stockItemRepository.findAllById(requested.keySet())) {
+            stockItems.put(stockItem.getId(), stockItem);
+        }
+        if (stockItems.size() != requested.size()) {
+            throw new ResourceNotFoundException("Stock item not found");
+        }
+
+        // Items sold from escrow buckets; their global quantity is queued, not written here
+        Set<UUID> escrowItems = new HashSet<>();
+        if (atomicUpdates) {
+            decrementStockAtomically(location, requested, stockItems, escrowItems);
+        } else {
+            if (location != null) {
+                reserveLocationStock(location, requested, stockItems, escrowItems);
+            }
+            checkAvailableStock(requested, stockItems, escrowItems);
+        }
+
+        if (location != null) {
+            UUID locationId = location.getId();
+            requested.forEach((itemId, quantity) -> eventPublisher.publishEvent(
+                new StockLocationChangedEvent(locationId, itemId, -quantity)));
+        }
+
+        List<SaleItemRequest> lines = new ArrayList<>(request.getItems());
+        lines.sort(Comparator.comparing(SaleItemRequest::getStockItemId));
+
         // Process each item in the sale
         List<SaleItem> saleItems = new ArrayList<>();
+        List<StockMovement> movements = new ArrayList<>();
         BigDecimal total = BigDecimal.ZERO;
         
-        for (SaleItemRequest itemRequest : request.getItems()) {
-            StockItem stockItem = stockItemRepository.findByIdWithLock(itemRequest.getStockItemId())
-                .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
-            
-            // Check if we need to use location-specific stock
-            if (location != null) {
-                // Get stock at this location
-                Optional<StockLocation> stockLocationOpt = 
-                    stockLocationRepository.findByStockItemAndLocationWithLock(
-                        itemRequest.getStockItemId(), 
-                        location.getId()
-                    );
-                
-                // If item exists at this location, check its quantity
-                if (stockLocationOpt.isPresent()) {
-                    StockLocation stockLocation = stockLocationOpt.get();
-                    if (stockLocation.getQuantity() < itemRequest.getQuantity()) {
-                        throw new InsufficientStockException(
-                            "Insufficient stock for item: " + stockItem.getName() +
-                            " at location: " + location.getName() +
-                            ". Available: " + stockLocation.getQuantity()
-                        );
-                    }
-                    
-                    // Update location stock
-                    stockLocation.setQuantity(stockLocation.getQuantity() - itemRequest.getQuantity());
-                    stockLocationRepository.save(stockLocation);
-                } else {
-                    throw new InsufficientStockException(
-                        "Item: " + stockItem.getName() + " is not available at location: " + location.getName()
-                    );
-                }
-                
-                // Record stock movement for this location
-                stockService.recordMovement(
-                    StockMovementRequest.builder()
-                        .stockItemId(stockItem.getId())
-                        .quantity(itemRequest.getQuantity())
-                        .type(MovementType.OUT)
-                        .reference(sale.getReference())
-                        .locationId(location.getId())
-                        .build()
-                );
+        for (SaleItemRequest itemRequest : lines) {
+            StockItem stockItem = stockItems.get(itemRequest.getStockItemId());
+            StockMovementRequest movementRequest = StockMovementRequest.builder()
+                .stockItemId(stockItem.getId())
+                .quantity(itemRequest.getQuantity())
+                .type(MovementType.OUT)
+                .reference(sale.getReference())
+                .locationId(location != null ? location.getId() : null)
+                .build();
+
+            // The atomic path has already changed the quantities in the database
+            if (escrowItems.contains(stockItem.getId())) {
+                movements.add(stockService.createMovement(stockItem, movementRequest, location));
             } else {
-                // Use global stock (backward compatibility)
-                if (stockItem.getQuantity() < itemRequest.getQuantity()) {
-                    throw new InsufficientStockException(
-                        "Insufficient stock for item: " + stockItem.getName() +
-                        ". Available: " + stockItem.getQuantity()
-                    );
-                }
-                
-                // Record global stock movement
-                stockService.recordMovement(
-                    StockMovementRequest.builder()
-                        .stockItemId(stockItem.getId())
-                        .quantity(itemRequest.getQuantity())
-                        .type(MovementType.OUT)
-                        .reference(sale.getReference())
-                        .build()
-                );
+                movements.add(atomicUpdates
+                    ? stockService.createMovement(stockItem, movementRequest, location)
+                    : stockService.applyMovement(stockItem, movementRequest, location));
             }
                 
             // Create sale item
@@ -148,7 +166,8 @@ public class SaleService {
         
         sale.setItems(saleItems);
         sale.setTotal(total);
-        
+
+        stockMovementRepository.saveAll(movements);
         return saleRepository.save(sale);
     }
     
@@ -162,52 +181,207 @@ public class SaleService {
         }
         
         Location location = sale.getLocation();
-        
-        // Reverse stock movements
+
+        // Merge the lines by item and lock in item order, the same order createSale uses
+        Map<UUID, Integer> restored = new TreeMap<>();
         for (SaleItem item : sale.getItems()) {
-            if (location != null) {
-                // If location-specific, update location stock
-                Optional<StockLocation> stockLocationOpt = 
-                    stockLocationRepository.findByStockItemAndLocationWithLock(
-                        item.getStockItem().getId(), 
-                        location.getId()
-                    );
-                
-                if (stockLocationOpt.isPresent()) {
-                    StockLocation stockLocation = stockLocationOpt.get();
-                    stockLocation.setQuantity(stockLocation.getQuantity() + item.getQuantity());
-                    stockLocationRepository.save(stockLocation);
-                }
-                
-                // Record location-specific reversal movement
-                stockService.recordMovement(
-                    StockMovementRequest.builder()
-                        .stockItemId(item.getStockItem().getId())
-                        .quantity(item.getQuantity())
-                        .type(MovementType.IN)
-                        .reference("CANCEL-" + sale.getReference())
-                        .notes("Sale cancellation")
-                        .locationId(location.getId())
-                        .build()
-                );
+            restored.merge(item.getStockItem().getId(), item.getQuantity(), Integer::sum);
+        }
+
+        Set<UUID> escrowItems = new HashSet<>();
+        if (location != null) {
+            restoreLocationStock(location, restored, escrowItems);
+        }
+
+        List<SaleItem> lines = new ArrayList<>(sale.getItems());
+        lines.sort(Comparator.comparing(line -> line.getStockItem().getId()));
+
+        // Reverse stock movements
+        List<StockMovement> movements = new ArrayList<>();
+        for (SaleItem item : lines) {
+            StockItem stockItem = item.getStockItem();
+            StockMovementRequest movementRequest = StockMovementRequest.builder()
+                .stockItemId(stockItem.getId())
+                .quantity(item.getQuantity())
+                .type(MovementType.IN)
+                .reference("CANCEL-" + sale.getReference())
+                .notes("Sale cancellation")
+                .locationId(location != null ? location.getId() : null)
+                .build();
+
+            if (escrowItems.contains(stockItem.getId())) {
+                movements.add(stockService.createMovement(stockItem, movementRequest, location));
+            } else if (atomicUpdates) {
+                stockService.changeQuantityAtomically(stockItem.getId(), MovementType.IN, item.getQuantity());
+                movements.add(stockService.createMovement(stockItem, movementRequest, location));
             } else {
-                // Record global stock reversal
-                stockService.recordMovement(
-                    StockMovementRequest.builder()
-                        .stockItemId(item.getStockItem().getId())
-                        .quantity(item.getQuantity())
-                        .type(MovementType.IN)
-                        .reference("CANCEL-" + sale.getReference())
-                        .notes("Sale cancellation")
-                        .build()
-                );
+                movements.add(stockService.applyMovement(stockItem, movementRequest, location));
             }
         }
-        
+        stockMovementRepository.saveAll(movements);
+
         sale.setStatus(SaleStatus.CANCELLED);
         return saleRepository.save(sale);
     }
     
+    /**
+     * Lock every stock_locations row the sale needs in one ordered query, then check
+     * and decrement them all. Taking the locks in a stable order keeps two baskets
+     * with overlapping items from deadlocking on each other.
+     */
+    private void reserveLocationStock(
+        Location location,
+        Map<UUID, Integer> requested,
+        Map<UUID, StockItem> stockItems,
+        Set<UUID> escrowItems
+    ) {
+        Map<UUID, StockLocation> stockByItem = new HashMap<>();
+        for (StockLocation stockLocation : stockLocationRepository
+                .findByLocationAndStockItemsWithLock(location.getId(), requested.keySet())) {
+            stockByItem.put(stockLocation.getStockItem().getId(), stockLocation);
+        }
+
+        // Items in escrow mode are not locked above; they are taken from their buckets
+        Map<UUID, StockLocation> escrowByItem = new HashMap<>();
+        if (stockByItem.size() < requested.size()) {
+            List<UUID> unlockedItems = requested.keySet().stream()
+                .filter(itemId -> !stockByItem.containsKey(itemId))
+                .toList();
+            for (StockLocation stockLocation : stockLocationRepository
+                    .findEscrowByLocationAndStockItems(location.getId(), unlockedItems)) {
+                escrowByItem.put(stockLocation.getStockItem().getId(), stockLocation);
+            }
+        }
+
+        requested.forEach((itemId, quantity) -> {
+            StockLocation stockLocation = stockByItem.get(itemId);
+            if (stockLocation == null) {
+                StockLocation escrowLocation = escrowByItem.get(itemId);
+                if (escrowLocation == null) {
+                    throw new InsufficientStockException(
+                        "Item: " + stockItems.get(itemId).getName() + " is not available at location: " + location.getName()
+                    );
+                }
+                withdrawFromEscrow(escrowLocation, quantity, stockItems.get(itemId), location);
+                escrowItems.add(itemId);
+                return;
+            }
+
+            if (stockLocation.getQuantity() < quantity) {
+                throw new InsufficientStockException(
+                    "Insufficient stock for item: " + stockItems.get(itemId).getName() +
+                    " at location: " + location.getName() +
+                    ". Available: " + stockLocation.getQuantity()
+                );
+            }
+
+            stockLocation.setQuantity(stockLocation.getQuantity() - quantity);
+        });
+    }
+
+    // The buckets are the authority for escrowed stock, so the item row is only queued for an update
+    /**
+     * Put a cancelled sale's stock back at its location, locking the rows in one
+     * ordered query like reserveLocationStock. Items without a row there only get
+     * their global stock back, as before.
+     */
+    private void restoreLocationStock(Location location, Map<UUID, Integer> restored, Set<UUID> escrowItems) {
+        Map<UUID, StockLocation> stockByItem = new HashMap<>();
+        for (StockLocation stockLocation : stockLocationRepository
+                .findByLocationAndStockItemsWithLock(location.getId(), restored.keySet())) {
+            stockByItem.put(stockLocation.getStockItem().getId(), stockLocation);
+        }
+
+        Map<UUID, StockLocation> escrowByItem = new HashMap<>();
+        if (stockByItem.size() < restored.size()) {
+            List<UUID> unlockedItems = restored.keySet().stream()
+                .filter(itemId -> !stockByItem.containsKey(itemId))
+                .toList();
+            for (StockLocation stockLocation : stockLocationRepository
+                    .findEscrowByLocationAndStockItems(location.getId(), unlockedItems)) {
+                escrowByItem.put(stockLocation.getStockItem().getId(), stockLocation);
+            }
+        }
+
+        restored.forEach((itemId, quantity) -> {
+            StockLocation stockLocation = stockByItem.get(itemId);
+            if (stockLocation != null) {
+                stockLocation.setQuantity(stockLocation.getQuantity() + quantity);
+            } else if (escrowByItem.containsKey(itemId)) {
+                escrowService.deposit(escrowByItem.get(itemId), quantity);
+                stockService.deferQuantityChange(itemId, MovementType.IN, quantity);
+                escrowItems.add(itemId);
+            } else {
+                return;
+            }
+            eventPublisher.publishEvent(new StockLocationChangedEvent(location.getId(), itemId, quantity));
+        });
+    }
+
+    private void withdrawFromEscrow(StockLocation stockLocation, int quantity, StockItem stockItem, Location location) {
+        if (!escrowService.tryWithdraw(stockLocation, quantity)) {
+            throw new InsufficientStockException(
+                "Insufficient stock for item: " + stockItem.getName() +
+                " at location: " + location.getName()
+            );
+        }
+        stockService.deferQuantityChange(stockItem.getId(), MovementType.OUT, quantity);
+    }
+
+    // Check global stock for the whole basket before changing anything
+    private void checkAvailableStock(
+        Map<UUID, Integer> requested,
+        Map<UUID, StockItem> stockItems,
+        Set<UUID> escrowItems
+    ) {
+        requested.forEach((itemId, quantity) -> {
+            if (escrowItems.contains(itemId)) {
+                return;
+            }
+            StockItem stockItem = stockItems.get(itemId);
+            if (stockItem.getQuantity() < quantity) {
+                throw new InsufficientStockException(
+                    "Insufficient stock for item: " + stockItem.getName() +
+                    ". Available: " + stockItem.getQuantity()
+                );
+            }
+        });
+    }
+
+    /**
+     * Decrement location and global stock with conditional updates, in item order,
+     * without reading the rows first. Any shortfall rolls the whole sale back.
+     */
+    private void decrementStockAtomically(
+        Location location,
+        Map<UUID, Integer> requested,
+        Map<UUID, StockItem> stockItems,
+        Set<UUID> escrowItems
+    ) {
+        requested.forEach((itemId, quantity) -> {
+            if (location != null
+                    && stockLocationRepository.decrementQuantity(itemId, location.getId(), quantity).isEmpty()) {
+                // Either short of stock or held in escrow buckets
+                StockLocation stockLocation = stockLocationRepository
+                    .findByStockItemIdAndLocationId(itemId, location.getId())
+                    .orElseThrow(() -> new InsufficientStockException(
+                        "Item: " + stockItems.get(itemId).getName() + " is not available at location: " + location.getName()
+                    ));
+                if (stockLocation.getEscrowBuckets() == 0) {
+                    throw new InsufficientStockException(
+                        "Insufficient stock for item: " + stockItems.get(itemId).getName() +
+                        " at location: " + location.getName() +
+                        ". Available: " + stockLocation.getQuantity()
+                    );
+                }
+                withdrawFromEscrow(stockLocation, quantity, stockItems.get(itemId), location);
+                escrowItems.add(itemId);
+                return;
+            }
+            stockService.changeQuantityAtomically(itemId, MovementType.OUT, quantity);
+        });
+    }
+
     // Helper method to generate a unique reference for a sale
     private String generateReference() {
         return "SALE-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
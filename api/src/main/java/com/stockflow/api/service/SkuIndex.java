@@ -0,0 +1,324 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.StockItemDTO;
+import com.stockflow.api.enums.StockStatus;
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.model.StockItem;
+import com.stockflow.api.repository.StockItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * SKU lookups for till scanners, answered from memory. Item columns live in flat
+ * arrays indexed by slot, and two open-addressing tables map SKU and id to a slot
+ * (stored as slot + 1 so 0 means empty). Lookups run under an optimistic read
+ * stamp and only take the read lock if a write overlapped them.
+ *
+ * Items are never deleted, so slots are only appended; a SKU change frees the old
+ * key with backward-shift deletion to keep probe chains short.
+ */
+@Component
+@Slf4j
+public class SkuIndex implements SmartInitializingSingleton {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final StockStatus[] STATUSES = StockStatus.values();
+
+    private final StockItemRepository stockItemRepository;
+    private final int defaultThreshold;
+    private final StampedLock lock = new StampedLock();
+
+    // Item columns by slot
+    private long[] idMsb = new long[INITIAL_CAPACITY];
+    private long[] idLsb = new long[INITIAL_CAPACITY];
+    private String[] skus = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private BigDecimal[] prices = new BigDecimal[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int[] thresholds = new int[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private LocalDateTime[] createdAts = new LocalDateTime[INITIAL_CAPACITY];
+    private LocalDateTime[] updatedAts = new LocalDateTime[INITIAL_CAPACITY];
+    private int size;
+
+    // Hash tables of slot + 1, kept at most half full
+    private int[] skuTable = new int[INITIAL_CAPACITY * 2];
+    private int[] idTable = new int[INITIAL_CAPACITY * 2];
+
+    public SkuIndex(
+            StockItemRepository stockItemRepository,
+            @Value("${stockflow.stock.low-stock-threshold:10}") int defaultThreshold) {
+        this.stockItemRepository = stockItemRepository;
+        this.defaultThreshold = defaultThreshold;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Object[]> rows = stockItemRepository.findAllCatalogColumns();
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(rows.size());
+            for (Object[] row : rows) {
+                UUID id = (UUID) row[0];
+                Integer threshold = (Integer) row[6];
+                Long version = (Long) row[7];
+                put(id, (String) row[1], (String) row[2], (BigDecimal) row[3], (Integer) row[4],
+                        (StockStatus) row[5], threshold, version != null ? version : 0L,
+                        (LocalDateTime) row[8], (LocalDateTime) row[9]);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        log.info("Built SKU index with {} items", rows.size());
+    }
+
+    public Optional<StockItemDTO> findBySku(String sku) {
+        long stamp = lock.tryOptimisticRead();
+        StockItemDTO item;
+        try {
+            item = read(sku);
+        } catch (RuntimeException e) {
+            // Arrays were swapped under the optimistic read; validation below fails
+            item = null;
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                item = read(sku);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return Optional.ofNullable(item);
+    }
+
+    public Optional<StockItemDTO> findById(UUID id) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slotOf(id);
+            return slot >= 0 ? Optional.of(toDTO(slot)) : Optional.empty();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                current = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return current;
+    }
+
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockItemChanged(StockItemChangedEvent event) {
+        StockItem item = event.getItem();
+        long version = event.getVersion();
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(event.getStockItemId());
+            if (slot >= 0 && versions[slot] > version) {
+                // A later commit's listener ran first
+                return;
+            }
+            if (item != null) {
+                put(item.getId(), item.getSku(), item.getName(), item.getPrice(), item.getQuantity(),
+                        item.getStatus(), item.getReorderThreshold(), version,
+                        item.getCreatedAt(), item.getUpdatedAt());
+                return;
+            }
+
+            // Conditional UPDATE: only the quantity is known; the status follows the same rule as the SQL
+            if (slot >= 0) {
+                int quantity = event.getQuantity();
+                int threshold = thresholds[slot] >= 0 ? thresholds[slot] : defaultThreshold;
+                StockStatus status = quantity <= 0 ? StockStatus.OUT_STOCK
+                        : quantity <= threshold ? StockStatus.LOW_STOCK
+                        : StockStatus.ACTIVE;
+                quantities[slot] = quantity;
+                statuses[slot] = (byte) status.ordinal();
+                versions[slot] = version;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private StockItemDTO read(String sku) {
+        int[] table = skuTable;
+        String[] keys = skus;
+        int mask = table.length - 1;
+        int probe = mix(sku.hashCode()) & mask;
+        for (int i = 0; i < table.length; i++) {
+            int entry = table[probe];
+            if (entry == 0) {
+                return null;
+            }
+            int slot = entry - 1;
+            if (sku.equals(keys[slot])) {
+                return toDTO(slot);
+            }
+            probe = (probe + 1) & mask;
+        }
+        return null;
+    }
+
+    private StockItemDTO toDTO(int slot) {
+        return StockItemDTO.builder()
+                .id(new UUID(idMsb[slot], idLsb[slot]))
+                .sku(skus[slot])
+                .name(names[slot])
+                .price(prices[slot])
+                .quantity(quantities[slot])
+                .status(STATUSES[statuses[slot]])
+                .reorderThreshold(thresholds[slot] >= 0 ? thresholds[slot] : null)
+                .createdAt(createdAts[slot])
+                .updatedAt(updatedAts[slot])
+                .build();
+    }
+
+    // Must hold the write lock
+    private void put(UUID id, String sku, String name, BigDecimal price, int quantity, StockStatus status,
+            Integer threshold, long version, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        int slot = slotOf(id);
+        boolean newKey;
+        if (slot < 0) {
+            ensureCapacity(size + 1);
+            slot = size++;
+            idMsb[slot] = id.getMostSignificantBits();
+            idLsb[slot] = id.getLeastSignificantBits();
+            insert(idTable, mix(id.hashCode()), slot);
+            newKey = true;
+        } else {
+            newKey = !skus[slot].equals(sku);
+            if (newKey) {
+                removeSku(skus[slot]);
+            }
+        }
+
+        skus[slot] = sku;
+        names[slot] = name;
+        prices[slot] = price;
+        quantities[slot] = quantity;
+        statuses[slot] = (byte) status.ordinal();
+        thresholds[slot] = threshold != null ? threshold : -1;
+        versions[slot] = version;
+        createdAts[slot] = createdAt;
+        updatedAts[slot] = updatedAt;
+        if (newKey) {
+            insert(skuTable, mix(sku.hashCode()), slot);
+        }
+    }
+
+    private int slotOf(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        int mask = idTable.length - 1;
+        int probe = mix(id.hashCode()) & mask;
+        while (idTable[probe] != 0) {
+            int slot = idTable[probe] - 1;
+            if (idMsb[slot] == msb && idLsb[slot] == lsb) {
+                return slot;
+            }
+            probe = (probe + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static void insert(int[] table, int hash, int slot) {
+        int mask = table.length - 1;
+        int probe = hash & mask;
+        while (table[probe] != 0) {
+            probe = (probe + 1) & mask;
+        }
+        table[probe] = slot + 1;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe chain into the gap
+    private void removeSku(String sku) {
+        int[] table = skuTable;
+        int mask = table.length - 1;
+        int gap = mix(sku.hashCode()) & mask;
+        while (table[gap] != 0 && !sku.equals(skus[table[gap] - 1])) {
+            gap = (gap + 1) & mask;
+        }
+        if (table[gap] == 0) {
+            return;
+        }
+
+        int probe = gap;
+        while (true) {
+            table[gap] = 0;
+            while (true) {
+                probe = (probe + 1) & mask;
+                if (table[probe] == 0) {
+                    return;
+                }
+                int home = mix(skus[table[probe] - 1].hashCode()) & mask;
+                // Move the entry only if the gap lies between its home slot and its position
+                boolean movable = gap <= probe ? (home <= gap || home > probe) : (home <= gap && home > probe);
+                if (movable) {
+                    break;
+                }
+            }
+            table[gap] = table[probe];
+            gap = probe;
+        }
+    }
+
+    // Must hold the write lock
+    private void ensureCapacity(int needed) {
+        if (needed > idMsb.length) {
+            int capacity = Integer.highestOneBit(Math.max(needed - 1, 1)) << 1;
+            idMsb = Arrays.copyOf(idMsb, capacity);
+            idLsb = Arrays.copyOf(idLsb, capacity);
+            skus = Arrays.copyOf(skus, capacity);
+            names = Arrays.copyOf(names, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            thresholds = Arrays.copyOf(thresholds, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            createdAts = Arrays.copyOf(createdAts, capacity);
+            updatedAts = Arrays.copyOf(updatedAts, capacity);
+        }
+        if (needed * 2 > skuTable.length) {
+            rehash(Integer.highestOneBit(needed * 2 - 1) << 1);
+        }
+    }
+
+    private void rehash(int tableSize) {
+        int[] newSkuTable = new int[tableSize];
+        int[] newIdTable = new int[tableSize];
+        for (int slot = 0; slot < size; slot++) {
+            insert(newSkuTable, mix(skus[slot].hashCode()), slot);
+            insert(newIdTable, mix(new UUID(idMsb[slot], idLsb[slot]).hashCode()), slot);
+        }
+        skuTable = newSkuTable;
+        idTable = newIdTable;
+    }
+
+    static int mix(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x45d9f3b;
+    }
+}
@@ -0,0 +1,275 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.StockItemDTO;
+import com.stockflow.api.enums.StockStatus;
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.model.StockItem;
+import com.stockflow.api.util.ModelMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the stock catalog, keyed by id and by SKU. Committed
+ * writes update entries in place, older versions than the cached entry are
+ * dropped, and a generation counter keeps a load that raced with a commit from caching
+ * the stale rows it read. Memory is bounded by an estimate of each entry's size;
+ * once the catalog no longer fits, full listings go back to the database.
+ */
+@Component
+@Slf4j
+public class StockCatalogCache {
+    // Rough per-entry overhead of the DTO, its boxed fields and both map entries
+    private static final int ENTRY_OVERHEAD_BYTES = 320;
+
+    private final long maxBytes;
+    private final int defaultThreshold;
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, UUID> idsBySku = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private long usedBytes;
+    private volatile boolean complete;
+    private volatile List<StockItemDTO> catalogView;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public StockCatalogCache(
+            @Value("${stockflow.cache.catalog.max-bytes:67108864}") long maxBytes,
+            @Value("${stockflow.stock.low-stock-threshold:10}") int defaultThreshold) {
+        this.maxBytes = maxBytes;
+        this.defaultThreshold = defaultThreshold;
+    }
+
+    public Optional<StockItemDTO> get(UUID id, Supplier<Optional<StockItem>> loader) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            hits.increment();
+            return Optional.of(entry.dto);
+        }
+
+        misses.increment();
+        long loadedAt = generation.get();
+        return loader.get().map(item -> cacheLoaded(item, loadedAt));
+    }
+
+    public Optional<StockItemDTO> getBySku(String sku, Supplier<Optional<StockItem>> loader) {
+        UUID id = idsBySku.get(sku);
+        Entry entry = id != null ? entries.get(id) : null;
+        if (entry != null) {
+            hits.increment();
+            return Optional.of(entry.dto);
+        }
+
+        misses.increment();
+        long loadedAt = generation.get();
+        return loader.get().map(item -> cacheLoaded(item, loadedAt));
+    }
+
+    /**
+     * The whole catalog, loaded once and then kept current by committed writes
+     */
+    public List<StockItemDTO> getAll(Supplier<List<StockItem>> loader) {
+        List<StockItemDTO> view = currentView();
+        if (view != null) {
+            hits.increment();
+            return view;
+        }
+
+        misses.increment();
+        long loadedAt = generation.get();
+        List<StockItem> items = loader.get();
+        List<StockItemDTO> dtos = new ArrayList<>(items.size());
+        synchronized (this) {
+            boolean current = generation.get() == loadedAt;
+            boolean fits = true;
+            for (StockItem item : items) {
+                StockItemDTO dto = ModelMapper.toStockItemDTO(item);
+                dtos.add(dto);
+                if (current && fits) {
+                    fits = put(dto, item.getVersion());
+                }
+            }
+            if (current && fits) {
+                complete = true;
+            }
+        }
+        return dtos;
+    }
+
+    /**
+     * The given items, with any not in the cache loaded together in one call
+     */
+    public List<StockItemDTO> getAll(Collection<UUID> ids, Function<Collection<UUID>, List<StockItem>> loader) {
+        List<StockItemDTO> found = new ArrayList<>(ids.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : ids) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                found.add(entry.dto);
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.add(found.size());
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        misses.add(missing.size());
+        long loadedAt = generation.get();
+        for (StockItem item : loader.apply(missing)) {
+            found.add(cacheLoaded(item, loadedAt));
+        }
+        return found;
+    }
+
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockItemChanged(StockItemChangedEvent event) {
+        synchronized (this) {
+            generation.incrementAndGet();
+            StockItem item = event.getItem();
+            if (item != null) {
+                if (!put(ModelMapper.toStockItemDTO(item), item.getVersion())) {
+                    // Out of room: the catalog can no longer be served from memory
+                    remove(event.getStockItemId());
+                    complete = false;
+                }
+            } else {
+                updateQuantity(event.getStockItemId(), event.getQuantity(), event.getVersion());
+            }
+            catalogView = null;
+        }
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hits", hits.sum());
+        metrics.put("misses", misses.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("entries", entries.size());
+        metrics.put("estimatedBytes", usedBytes);
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("complete", complete);
+        return metrics;
+    }
+
+    private StockItemDTO cacheLoaded(StockItem item, long loadedAt) {
+        StockItemDTO dto = ModelMapper.toStockItemDTO(item);
+        synchronized (this) {
+            // A commit since the load started may have changed this row
+            if (generation.get() == loadedAt) {
+                put(dto, item.getVersion());
+            }
+        }
+        return dto;
+    }
+
+    // The cached listing, or null while the catalog is not fully cached
+    private List<StockItemDTO> currentView() {
+        List<StockItemDTO> view = catalogView;
+        if (view != null || !complete) {
+            return view;
+        }
+        synchronized (this) {
+            if (catalogView == null && complete) {
+                catalogView = entries.values().stream().map(entry -> entry.dto).toList();
+            }
+            return catalogView;
+        }
+    }
+
+    // Must hold the monitor. Returns false when the entry would not fit.
+    private boolean put(StockItemDTO dto, Long version) {
+        long entryVersion = version != null ? version : 0L;
+        Entry previous = entries.get(dto.getId());
+        if (previous != null && previous.version > entryVersion) {
+            return true;
+        }
+
+        long size = estimateSize(dto);
+        long previousSize = previous != null ? previous.size : 0;
+        if (usedBytes - previousSize + size > maxBytes) {
+            rejected.increment();
+            return false;
+        }
+
+        entries.put(dto.getId(), new Entry(dto, entryVersion, size));
+        if (previous != null && !previous.dto.getSku().equals(dto.getSku())) {
+            idsBySku.remove(previous.dto.getSku(), dto.getId());
+        }
+        idsBySku.put(dto.getSku(), dto.getId());
+        usedBytes += size - previousSize;
+        return true;
+    }
+
+    // Must hold the monitor. Conditional UPDATE: the status follows the same rule as the SQL.
+    private void updateQuantity(UUID id, int quantity, long version) {
+        Entry previous = entries.get(id);
+        if (previous == null || previous.version > version) {
+            return;
+        }
+        StockItemDTO dto = previous.dto;
+        int threshold = dto.getReorderThreshold() != null ? dto.getReorderThreshold() : defaultThreshold;
+        StockStatus status = quantity <= 0 ? StockStatus.OUT_STOCK
+                : quantity <= threshold ? StockStatus.LOW_STOCK
+                : StockStatus.ACTIVE;
+        // Listings hand out the cached DTOs, so the entry gets a copy
+        StockItemDTO updated = StockItemDTO.builder()
+                .id(dto.getId())
+                .name(dto.getName())
+                .sku(dto.getSku())
+                .price(dto.getPrice())
+                .quantity(quantity)
+                .status(status)
+                .reorderThreshold(dto.getReorderThreshold())
+                .createdAt(dto.getCreatedAt())
+                .updatedAt(dto.getUpdatedAt())
+                .build();
+        entries.put(id, new Entry(updated, version, previous.size));
+    }
+
+    // Must hold the monitor
+    private void remove(UUID id) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            idsBySku.remove(previous.dto.getSku(), id);
+            usedBytes -= previous.size;
+        }
+    }
+
+    private static long estimateSize(StockItemDTO dto) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (dto.getName().length() + 2L * dto.getSku().length());
+    }
+
+    private static class Entry {
+        private final StockItemDTO dto;
+        private final long version;
+        private final long size;
+
+        Entry(StockItemDTO dto, long version, long size) {
+            this.dto = dto;
+            this.version = version;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.model.StockItem;
+import com.stockflow.api.repository.StockItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead search over item names and SKUs. Each item's text is indexed by its
+ * trigrams and by the one- and two-character prefixes of its words, with sorted
+ * posting lists of document numbers. A query term narrows the candidates through
+ * the posting lists and is then checked against the text, so no row is scanned.
+ *
+ * Changing an item's name or SKU retires its old document and adds a new one;
+ * posting lists are rebuilt once retired documents make up a quarter of the index.
+ * Queries need a term of at least two characters, since a single letter would
+ * match a large share of the catalog.
+ */
+@Component
+@Slf4j
+public class StockSearchIndex implements SmartInitializingSingleton {
+    private static final int COMPACT_MIN_RETIRED = 1024;
+    private static final int MIN_TERM_LENGTH = 2;
+
+    private final StockItemRepository stockItemRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock
+    private final List<UUID> docIds = new ArrayList<>();
+    private final List<String> docNames = new ArrayList<>();
+    private final List<String> docSkus = new ArrayList<>();
+    private final List<String> docTexts = new ArrayList<>();
+    private final List<String> docLowerNames = new ArrayList<>();
+    private final List<String> docLowerSkus = new ArrayList<>();
+    private boolean[] retired = new boolean[1024];
+    private int retiredCount;
+    private final Map<UUID, Integer> docsByItem = new HashMap<>();
+    // Version of the item each document was built from, so late events cannot undo a rename
+    private final Map<UUID, Long> itemVersions = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    public StockSearchIndex(StockItemRepository stockItemRepository) {
+        this.stockItemRepository = stockItemRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Object[]> rows = stockItemRepository.findAllSearchColumns();
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                add((UUID) row[0], (String) row[1], (String) row[2]);
+                if (row[3] != null) {
+                    itemVersions.put((UUID) row[0], (Long) row[3]);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Built search index with {} items and {} keys", rows.size(), postings.size());
+    }
+
+    /**
+     * Ids of the best matches for a query, best first. Every whitespace-separated
+     * term must appear in the item's name or SKU.
+     */
+    public List<UUID> search(String query, int limit) {
+        String[] terms = normalize(query).split(" ");
+        if (Arrays.stream(terms).allMatch(term -> term.length() < MIN_TERM_LENGTH)) {
+            return List.of();
+        }
+        String first = terms[0];
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            for (String term : terms) {
+                for (String key : keysFor(term)) {
+                    Postings list = postings.get(key);
+                    if (list == null) {
+                        return List.of();
+                    }
+                    lists.add(list);
+                }
+            }
+
+            // Start from the shortest list so every intersection stays small
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            int[] candidates = Arrays.copyOf(lists.get(0).docs, lists.get(0).size);
+            int candidateCount = candidates.length;
+            for (int i = 1; i < lists.size() && candidateCount > 0; i++) {
+                candidateCount = intersect(candidates, candidateCount, lists.get(i));
+            }
+
+            // Keep the best matches in a min-heap bounded by the limit
+            PriorityQueue<Match> best = new PriorityQueue<>(Comparator.comparingInt((Match match) -> match.rank));
+            for (int i = 0; i < candidateCount; i++) {
+                int doc = candidates[i];
+                if (retired[doc] || !containsAll(docTexts.get(doc), terms)) {
+                    continue;
+                }
+                best.add(new Match(doc, score(doc, first)));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            List<Match> ranked = new ArrayList<>(best);
+            ranked.sort(Comparator.comparingInt((Match match) -> match.rank).reversed());
+            List<UUID> ids = new ArrayList<>(ranked.size());
+            for (Match match : ranked) {
+                ids.add(docIds.get(match.doc));
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockItemChanged(StockItemChangedEvent event) {
+        StockItem item = event.getItem();
+        if (item == null) {
+            // Quantity-only change
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Long indexedVersion = itemVersions.get(item.getId());
+            if (indexedVersion != null && event.getVersion() < indexedVersion) {
+                return;
+            }
+            itemVersions.put(item.getId(), event.getVersion());
+
+            Integer doc = docsByItem.get(item.getId());
+            if (doc != null) {
+                if (docNames.get(doc).equals(item.getName()) && docSkus.get(doc).equals(item.getSku())) {
+                    return;
+                }
+                retired[doc] = true;
+                retiredCount++;
+            }
+            add(item.getId(), item.getName(), item.getSku());
+
+            if (retiredCount >= COMPACT_MIN_RETIRED && retiredCount * 4 >= docIds.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must hold the write lock
+    private void add(UUID itemId, String name, String sku) {
+        int doc = docIds.size();
+        String text = normalize(name) + " " + normalize(sku);
+        docIds.add(itemId);
+        docNames.add(name);
+        docSkus.add(sku);
+        docTexts.add(text);
+        docLowerNames.add(name.toLowerCase(Locale.ROOT));
+        docLowerSkus.add(sku.toLowerCase(Locale.ROOT));
+        if (doc >= retired.length) {
+            retired = Arrays.copyOf(retired, retired.length * 2);
+        }
+        docsByItem.put(itemId, doc);
+
+        Set<String> keys = new LinkedHashSet<>();
+        for (String word : text.split(" ")) {
+            if (!word.isEmpty()) {
+                keys.add("^" + word.substring(0, 1));
+                if (word.length() > 1) {
+                    keys.add("^" + word.substring(0, 2));
+                }
+            }
+        }
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            keys.add(text.substring(i, i + 3));
+        }
+        for (String key : keys) {
+            postings.computeIfAbsent(key, k -> new Postings()).add(doc);
+        }
+    }
+
+    // Must hold the write lock
+    private void compact() {
+        List<UUID> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> skus = new ArrayList<>();
+        for (int doc = 0; doc < docIds.size(); doc++) {
+            if (!retired[doc]) {
+                ids.add(docIds.get(doc));
+                names.add(docNames.get(doc));
+                skus.add(docSkus.get(doc));
+            }
+        }
+
+        docIds.clear();
+        docNames.clear();
+        docSkus.clear();
+        docTexts.clear();
+        docLowerNames.clear();
+        docLowerSkus.clear();
+        docsByItem.clear();
+        postings.clear();
+        retired = new boolean[Math.max(1024, ids.size() * 2)];
+        retiredCount = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            add(ids.get(i), names.get(i), skus.get(i));
+        }
+        log.debug("Compacted search index to {} items", ids.size());
+    }
+
+    private int score(int doc, String term) {
+        String sku = docLowerSkus.get(doc);
+        String name = docLowerNames.get(doc);
+        int score;
+        if (sku.equals(term)) {
+            score = 1000;
+        } else if (sku.startsWith(term)) {
+            score = 800;
+        } else if (name.startsWith(term)) {
+            score = 600;
+        } else if (name.contains(" " + term)) {
+            score = 400;
+        } else {
+            score = 200;
+        }
+        // Shorter names are closer matches
+        return score - Math.min(name.length(), 199);
+    }
+
+    // Every key of a term must be in an item's posting lists for the term to match it
+    private static List<String> keysFor(String term) {
+        if (term.length() < 3) {
+            return List.of("^" + term);
+        }
+        List<String> keys = new ArrayList<>(term.length() - 2);
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            keys.add(term.substring(i, i + 3));
+        }
+        return keys;
+    }
+
+    private static boolean containsAll(String text, String[] terms) {
+        for (String term : terms) {
+            if (term.length() < 3 ? !(text.startsWith(term) || text.contains(" " + term)) : !text.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Intersect sorted candidates with a sorted posting list in place
+    private static int intersect(int[] candidates, int count, Postings list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < list.size; i++) {
+            while (j < list.size && list.docs[j] < candidates[i]) {
+                j++;
+            }
+            if (j < list.size && list.docs[j] == candidates[i]) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static class Match {
+        private final int doc;
+        private final int rank;
+
+        Match(int doc, int rank) {
+            this.doc = doc;
+            this.rank = rank;
+        }
+    }
+
+    // Growable sorted list of document numbers
+    private static class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
@@ -1,92 +1,338 @@
 package com.stockflow.api.service;
 
+import com.stockflow.api.dto.MovementResult;
 import com.stockflow.api.dto.StockItemDTO;
+import com.stockflow.api.dto.StockItemPage;
 import com.stockflow.api.dto.StockMovementRequest;
 import com.stockflow.api.enums.MovementType;
 import com.stockflow.api.enums.StockStatus;
+import com.stockflow.api.event.StockItemChangedEvent;
 import com.stockflow.api.exception.InsufficientStockException;
 import com.stockflow.api.exception.ResourceNotFoundException;
 import com.stockflow.api.model.Location;
 import com.stockflow.api.model.StockItem;
 import com.stockflow.api.model.StockMovement;
-import com.stockflow.api.repository.LocationRepository;
 import com.stockflow.api.repository.StockItemRepository;
+import com.stockflow.api.repository.StockItemRepository.UpdatedQuantity;
 import com.stockflow.api.repository.StockMovementRepository;
+import com.stockflow.api.util.ModelMapper;
+import jakarta.persistence.EntityManager;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @Transactional
 @Slf4j
 public class StockService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private final StockItemRepository stockItemRepository;
     private final StockMovementRepository stockMovementRepository;
-    private final LocationRepository locationRepository;
+    private final LocationRegistry locationRegistry;
+    private final StockCatalogCache catalogCache;
+    private final LowStockIndex lowStockIndex;
+    private final SkuIndex skuIndex;
+    private final StockSearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final int lowStockThreshold;
+    private final boolean atomicUpdates;
 
     public StockService(
             StockItemRepository stockItemRepository,
             StockMovementRepository stockMovementRepository,
-            LocationRepository locationRepository) {
+            LocationRegistry locationRegistry,
+            StockCatalogCache catalogCache,
+            LowStockIndex lowStockIndex,
+            SkuIndex skuIndex,
+            StockSearchIndex searchIndex,
+            ApplicationEventPublisher eventPublisher,
+            EntityManager entityManager,
+            @Value("${stockflow.stock.low-stock-threshold:10}") int lowStockThreshold,
+            @Value("${stockflow.stock.atomic-updates:false}") boolean atomicUpdates) {
         this.stockItemRepository = stockItemRepository;
         this.stockMovementRepository = stockMovementRepository;
-        this.locationRepository = locationRepository;
+        this.locationRegistry = locationRegistry;
+        this.catalogCache = catalogCache;
+        this.lowStockIndex = lowStockIndex;
+        this.skuIndex = skuIndex;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.lowStockThreshold = lowStockThreshold;
+        this.atomicUpdates = atomicUpdates;
     }
 
     @Transactional
     public StockMovement recordMovement(StockMovementRequest request) {
-        StockItem item = stockItemRepository.findByIdWithLock(request.getStockItemId())
-                .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
-
-        // Validate stock levels for outgoing movements
-        if (request.getType() == MovementType.OUT) {
-            if (item.getQuantity() < request.getQuantity()) {
-                throw new InsufficientStockException(
-                        "Insufficient stock. Available: " + item.getQuantity());
-            }
+        if (atomicUpdates) {
+            return recordMovementAtomically(request);
         }
 
-        // Update stock quantity
-        int quantityChange = request.getType() == MovementType.IN ? request.getQuantity() : -request.getQuantity();
-        item.setQuantity(item.getQuantity() + quantityChange);
+        StockItem item = stockItemRepository.findByIdWithLock(request.getStockItemId())
+                .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
 
-        // Update stock status based on new quantity
+        // Update stock quantity and status
+        applyQuantityChange(item, request);
         updateStockStatus(item);
 
-        // Create movement record
-        StockMovement movement = new StockMovement();
-        movement.setStockItem(item);
-        movement.setQuantity(request.getQuantity());
-        movement.setType(request.getType());
-        movement.setReference(request.getReference());
-        movement.setNotes(request.getNotes());
-        
         // Set location if provided
+        Location location = null;
         if (request.getLocationId() != null) {
-            Location location = locationRepository.findById(request.getLocationId())
+            location = locationRegistry.findReference(request.getLocationId())
                     .orElseThrow(() -> new ResourceNotFoundException("Location not found"));
-            movement.setLocation(location);
         }
 
+        StockMovement movement = createMovement(item, request, location);
+
         stockItemRepository.save(item);
+        publishChanged(item);
         return stockMovementRepository.save(movement);
     }
 
+    private StockMovement recordMovementAtomically(StockMovementRequest request) {
+        changeQuantityAtomically(request.getStockItemId(), request.getType(), request.getQuantity());
+
+        Location location = null;
+        if (request.getLocationId() != null) {
+            location = locationRegistry.findReference(request.getLocationId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Location not found"));
+        }
+
+        StockItem item = stockItemRepository.getReferenceById(request.getStockItemId());
+        return stockMovementRepository.save(createMovement(item, request, location));
+    }
+
+    /**
+     * Change an item's quantity with a single conditional UPDATE instead of a
+     * read-modify-write, so no lock is held between reading and writing the row.
+     * Returns the new quantity; the status is recomputed by the same statement.
+     */
+    int changeQuantityAtomically(UUID itemId, MovementType type, int quantity) {
+        Optional<UpdatedQuantity> updated = type == MovementType.IN
+                ? stockItemRepository.incrementQuantity(itemId, quantity, lowStockThreshold)
+                : stockItemRepository.decrementQuantity(itemId, quantity, lowStockThreshold);
+
+        // Read the column itself: a loaded entity would still hold the quantity from before the UPDATE
+        UpdatedQuantity result = updated.orElseThrow(() -> stockItemRepository.findQuantityById(itemId)
+                .<RuntimeException>map(available -> new InsufficientStockException(
+                        "Insufficient stock. Available: " + available))
+                .orElseGet(() -> new ResourceNotFoundException("Stock item not found")));
+        eventPublisher.publishEvent(
+                new StockItemChangedEvent(itemId, result.getQuantity(), result.getVersion(), null));
+        return result.getQuantity();
+    }
+
+    /**
+     * Queue a change to an item's global quantity without touching its row. Used
+     * for escrow sales, whose stock has already been checked and taken from the
+     * location buckets; the change is folded in by applyDeferredQuantityChanges.
+     */
+    void deferQuantityChange(UUID itemId, MovementType type, int quantity) {
+        stockItemRepository.deferQuantityChange(itemId, type == MovementType.IN ? quantity : -quantity);
+    }
+
+    // Fold an item's queued changes into its row; does nothing if none are queued
+    void applyDeferredQuantityChanges(UUID itemId) {
+        stockItemRepository.applyDeferredQuantityChanges(itemId, lowStockThreshold)
+                .ifPresent(result -> eventPublisher.publishEvent(
+                        new StockItemChangedEvent(itemId, result.getQuantity(), result.getVersion(), null)));
+    }
+
+    /**
+     * Record many movements in one transaction, reporting the outcome of each line
+     */
+    @Transactional
+    public List<MovementResult> recordMovements(List<StockMovementRequest> requests) {
+        List<MovementOutcome> outcomes = applyMovements(requests);
+
+        List<MovementResult> results = new ArrayList<>(outcomes.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            MovementOutcome outcome = outcomes.get(i);
+            results.add(MovementResult.builder()
+                    .index(i)
+                    .stockItemId(requests.get(i).getStockItemId())
+                    .success(outcome.isApplied())
+                    .movementId(outcome.isApplied() ? outcome.getMovement().getId() : null)
+                    .quantity(outcome.getQuantity())
+                    .error(outcome.isApplied() ? null : outcome.getFailure().getMessage())
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * Apply a batch of movements against the current transaction. Lines are grouped
+     * by stock item so each item and location is loaded once, and lines that cannot
+     * be applied are reported in their outcome instead of failing the whole batch.
+     */
+    List<MovementOutcome> applyMovements(List<StockMovementRequest> requests) {
+        Map<UUID, List<Integer>> linesByItem = new LinkedHashMap<>();
+        Set<UUID> locationIds = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            StockMovementRequest request = requests.get(i);
+            linesByItem.computeIfAbsent(request.getStockItemId(), k -> new ArrayList<>()).add(i);
+            if (request.getLocationId() != null) {
+                locationIds.add(request.getLocationId());
+            }
+        }
+
+        // Version-checked updates on flush guard the items against concurrent writers
+        Map<UUID, StockItem> items = stockItemRepository.findAllById(linesByItem.keySet()).stream()
+                .collect(Collectors.toMap(StockItem::getId, Function.identity()));
+        Map<UUID, Location> locations = new HashMap<>();
+        for (UUID locationId : locationIds) {
+            locationRegistry.findReference(locationId).ifPresent(location -> locations.put(locationId, location));
+        }
+
+        MovementOutcome[] outcomes = new MovementOutcome[requests.size()];
+        List<StockMovement> movements = new ArrayList<>();
+
+        linesByItem.forEach((itemId, lines) -> {
+            StockItem item = items.get(itemId);
+            for (int line : lines) {
+                StockMovementRequest request = requests.get(line);
+                if (item == null) {
+                    outcomes[line] = MovementOutcome.failed(new ResourceNotFoundException("Stock item not found"));
+                    continue;
+                }
+
+                Location location = null;
+                if (request.getLocationId() != null) {
+                    location = locations.get(request.getLocationId());
+                    if (location == null) {
+                        outcomes[line] = MovementOutcome.failed(new ResourceNotFoundException("Location not found"));
+                        continue;
+                    }
+                }
+
+                try {
+                    applyQuantityChange(item, request);
+                } catch (InsufficientStockException e) {
+                    outcomes[line] = MovementOutcome.failed(e);
+                    continue;
+                }
+
+                StockMovement movement = createMovement(item, request, location);
+                movements.add(movement);
+                outcomes[line] = MovementOutcome.applied(movement, item.getQuantity());
+            }
+
+            if (item != null) {
+                updateStockStatus(item);
+                publishChanged(item);
+            }
+        });
+
+        // Item updates and movement inserts are flushed as JDBC batches on commit
+        stockMovementRepository.saveAll(movements);
+        return Arrays.asList(outcomes);
+    }
+
     public List<StockItemDTO> getAllStockItems() {
-        return stockItemRepository.findAll().stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return catalogCache.getAll(stockItemRepository::findAll);
+    }
+
+    /**
+     * One page of the catalog in SKU order, starting after the given SKU
+     */
+    @Transactional(readOnly = true)
+    public StockItemPage getStockItemPage(String after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Read one extra row to tell whether another page follows
+        Limit fetch = Limit.of(pageSize + 1);
+        List<StockItem> items = after == null
+                ? stockItemRepository.findAllByOrderBySkuAsc(fetch)
+                : stockItemRepository.findBySkuGreaterThanOrderBySkuAsc(after, fetch);
+
+        boolean hasMore = items.size() > pageSize;
+        List<StockItemDTO> page = items.stream()
+                .limit(pageSize)
+                .map(ModelMapper::toStockItemDTO)
+                .toList();
+
+        return StockItemPage.builder()
+                .items(page)
+                .nextCursor(hasMore ? page.get(page.size() - 1).getSku() : null)
+                .build();
+    }
+
+    /**
+     * Pass every item to the consumer in SKU order while reading rows through a
+     * database cursor. Each entity is detached once mapped, so memory stays flat
+     * however large the catalog is.
+     */
+    @Transactional(readOnly = true)
+    public void streamStockItems(Consumer<StockItemDTO> consumer) {
+        try (Stream<StockItem> items = stockItemRepository.streamAllOrderBySku()) {
+            items.forEach(item -> {
+                consumer.accept(ModelMapper.toStockItemDTO(item));
+                entityManager.detach(item);
+            });
+        }
     }
 
     public StockItemDTO getStockItem(UUID id) {
-        StockItem item = stockItemRepository.findById(id)
+        return catalogCache.get(id, () -> stockItemRepository.findById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
+    }
+
+    /**
+     * Resolve a scanned SKU from the in-memory SKU index. The catalog cache and the
+     * database are only consulted for SKUs the index does not know. No transaction
+     * is opened here, so an index hit never takes a connection; a miss reads through
+     * the repository's own transaction.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public StockItemDTO getStockItemBySku(String sku) {
+        return skuIndex.findBySku(sku)
+                .or(() -> catalogCache.getBySku(sku, () -> stockItemRepository.findBySku(sku)))
                 .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
-        return mapToDTO(item);
+    }
+
+    /**
+     * Items whose name or SKU match the query, best match first. Like SKU lookups,
+     * this only reaches the database for items missing from the catalog cache.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<StockItemDTO> searchStockItems(String query, int limit) {
+        List<UUID> ids = searchIndex.search(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, StockItemDTO> items = catalogCache.getAll(ids, stockItemRepository::findAllById).stream()
+                .collect(Collectors.toMap(StockItemDTO::getId, Function.identity()));
+        return ids.stream()
+                .map(items::get)
+                .filter(item -> item != null)
+                .collect(Collectors.toList());
     }
 
     public StockItemDTO createStockItem(StockItemDTO dto) {
@@ -102,9 +348,11 @@ public class StockService {
         newItem.setPrice(dto.getPrice());
         newItem.setQuantity(dto.getQuantity() != null ? dto.getQuantity() : 0);
         newItem.setStatus(dto.getStatus() != null ? dto.getStatus() : StockStatus.ACTIVE);
+        newItem.setReorderThreshold(validateThreshold(dto.getReorderThreshold()));
 
         StockItem savedItem = stockItemRepository.save(newItem);
-        return mapToDTO(savedItem);
+        publishChanged(savedItem);
+        return ModelMapper.toStockItemDTO(savedItem);
     }
 
     public StockItemDTO updateStockItem(UUID id, StockItemDTO dto) {
@@ -130,36 +378,128 @@ public class StockService {
             existingItem.setStatus(dto.getStatus());
         }
 
+        // Null leaves the threshold as it is; it is cleared through setReorderThreshold
+        if (dto.getReorderThreshold() != null && !dto.getReorderThreshold().equals(existingItem.getReorderThreshold())) {
+            existingItem.setReorderThreshold(validateThreshold(dto.getReorderThreshold()));
+            if (dto.getStatus() == null) {
+                refreshThresholdStatus(existingItem);
+            }
+        }
+
         StockItem savedItem = stockItemRepository.save(existingItem);
-        return mapToDTO(savedItem);
+        publishChanged(savedItem);
+        return ModelMapper.toStockItemDTO(savedItem);
+    }
+
+    /**
+     * Set or clear an item's reorder threshold; a cleared item follows the configured default
+     */
+    public StockItemDTO setReorderThreshold(UUID id, Integer reorderThreshold) {
+        StockItem item = stockItemRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
+
+        item.setReorderThreshold(validateThreshold(reorderThreshold));
+        refreshThresholdStatus(item);
+        StockItem savedItem = stockItemRepository.save(item);
+        publishChanged(savedItem);
+        return ModelMapper.toStockItemDTO(savedItem);
     }
 
+    /**
+     * Items at or below their reorder threshold, answered from the low-stock index
+     */
     public List<StockItemDTO> getLowStockItems() {
-        return stockItemRepository.findByStatus(StockStatus.LOW_STOCK).stream()
-                .map(this::mapToDTO)
+        return catalogCache.getAll(lowStockIndex.getLowStockItemIds(), stockItemRepository::findAllById).stream()
+                .sorted(Comparator.comparing(StockItemDTO::getSku))
                 .collect(Collectors.toList());
     }
 
-    private StockItemDTO mapToDTO(StockItem item) {
-        return StockItemDTO.builder()
-                .id(item.getId())
-                .name(item.getName())
-                .sku(item.getSku())
-                .price(item.getPrice())
-                .quantity(item.getQuantity())
-                .status(item.getStatus())
-                .createdAt(item.getCreatedAt())
-                .updatedAt(item.getUpdatedAt())
-                .build();
+    /**
+     * Apply a movement to an item already loaded in the current transaction.
+     * The returned movement is not persisted yet, so callers can batch the inserts.
+     */
+    StockMovement applyMovement(StockItem item, StockMovementRequest request, Location location) {
+        applyQuantityChange(item, request);
+        updateStockStatus(item);
+        publishChanged(item);
+        return createMovement(item, request, location);
+    }
+
+    private void applyQuantityChange(StockItem item, StockMovementRequest request) {
+        // Validate stock levels for outgoing movements
+        if (request.getType() == MovementType.OUT && item.getQuantity() < request.getQuantity()) {
+            throw new InsufficientStockException(
+                    "Insufficient stock. Available: " + item.getQuantity());
+        }
+
+        int quantityChange = request.getType() == MovementType.IN ? request.getQuantity() : -request.getQuantity();
+        item.setQuantity(item.getQuantity() + quantityChange);
+    }
+
+    StockMovement createMovement(StockItem item, StockMovementRequest request, Location location) {
+        StockMovement movement = new StockMovement();
+        movement.setStockItem(item);
+        movement.setQuantity(request.getQuantity());
+        movement.setType(request.getType());
+        movement.setReference(request.getReference());
+        movement.setNotes(request.getNotes());
+        movement.setLocation(location);
+        return movement;
+    }
+
+    // Listeners that run after commit see the item as it was flushed
+    private void publishChanged(StockItem item) {
+        eventPublisher.publishEvent(new StockItemChangedEvent(item.getId(), item.getQuantity(), 0L, item));
+    }
+
+    private int thresholdFor(StockItem item) {
+        return item.getReorderThreshold() != null ? item.getReorderThreshold() : lowStockThreshold;
+    }
+
+    private Integer validateThreshold(Integer threshold) {
+        if (threshold != null && threshold < 0) {
+            throw new IllegalArgumentException("Reorder threshold cannot be negative");
+        }
+        return threshold;
+    }
+
+    // A new threshold can move the item in or out of low stock
+    private void refreshThresholdStatus(StockItem item) {
+        if (item.getStatus() != StockStatus.INACTIVE) {
+            updateStockStatus(item);
+        }
     }
 
     private void updateStockStatus(StockItem item) {
         if (item.getQuantity() <= 0) {
             item.setStatus(StockStatus.OUT_STOCK);
-        } else if (item.getQuantity() <= 10) { // Threshold could be configurable
+        } else if (item.getQuantity() <= thresholdFor(item)) {
             item.setStatus(StockStatus.LOW_STOCK);
         } else {
             item.setStatus(StockStatus.ACTIVE);
         }
     }
+
+    /**
+     * Result of applying one line of a movement batch
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    static class MovementOutcome {
+        private final StockMovement movement;
+        private final Integer quantity;
+        private final RuntimeException failure;
+
+        static MovementOutcome applied(StockMovement movement, int quantity) {
+            return new MovementOutcome(movement, quantity, null);
+        }
+
+        static MovementOutcome failed(RuntimeException failure) {
+            return new MovementOutcome(null, null, failure);
+        }
+
+        boolean isApplied() {
+            return failure == null;
+        }
+    }
 }
\ No newline at end of file
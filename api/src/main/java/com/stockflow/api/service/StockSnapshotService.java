@@ -0,0 +1,58 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.LocationDTO;
+import com.stockflow.api.repository.StockDailySnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * End-of-day job writing stock_daily_snapshots. Each location of a day is
+ * written by one upsert in its own transaction, so the job holds no long
+ * transaction and a failed run can simply be repeated.
+ *
+ * Every run starts again from the latest day already written, which may be
+ * incomplete, and then catches up on every day since, so days missed while the
+ * application was down are filled in on the next start.
+ */
+@Service
+@Slf4j
+public class StockSnapshotService {
+    private final StockDailySnapshotRepository snapshotRepository;
+    private final LocationRegistry locationRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    public StockSnapshotService(
+            StockDailySnapshotRepository snapshotRepository,
+            LocationRegistry locationRegistry,
+            PlatformTransactionManager transactionManager) {
+        this.snapshotRepository = snapshotRepository;
+        this.locationRegistry = locationRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stockflow.snapshots.cron:0 0 0 * * *}")
+    public synchronized void writeSnapshots() {
+        LocalDate today = LocalDate.now();
+        LocalDate day = snapshotRepository.findLatestSnapshotDate().orElse(today.minusDays(1));
+        for (; day.isBefore(today); day = day.plusDays(1)) {
+            writeDay(day);
+        }
+    }
+
+    private void writeDay(LocalDate day) {
+        int rows = 0;
+        for (LocationDTO location : locationRegistry.getAll()) {
+            rows += transactionTemplate.execute(status -> snapshotRepository.writeLocationSnapshot(
+                    day, location.getId(), day.atStartOfDay(), day.plusDays(1).atStartOfDay()));
+        }
+        log.info("Wrote {} stock snapshot rows for {}", rows, day);
+    }
+}
@@ -0,0 +1,311 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.StockLevelUpdate;
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.event.StockLocationChangedEvent;
+import com.stockflow.api.event.StockLocationThresholdChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fan-out of committed stock level changes to Server-Sent Events subscribers.
+ * Idle connections hold no thread; a change only marks the changed item as
+ * pending on each matching subscriber and hands the subscriber to a small
+ * dispatcher pool, so the committing thread never writes to a socket.
+ *
+ * Pending items are a set, so repeated changes to one item before it is sent
+ * collapse into a single event carrying the latest level, read from the in-memory
+ * indexes when it is sent. A subscriber is drained by at most one dispatcher at a
+ * time. One that falls more than max-pending items behind has its backlog dropped
+ * and is sent a "resync" event instead, telling it to reload the listing.
+ *
+ * Writes block, so the pool grows past its core threads up to max-threads rather
+ * than letting a few clients that stopped reading hold up everyone else. A send
+ * still running after send-timeout-ms is given up on and its subscriber closed.
+ */
+@Component
+@Slf4j
+public class StockStreamHub {
+    private final SkuIndex skuIndex;
+    private final LowStockIndex lowStockIndex;
+    private final long timeoutMs;
+    private final int maxPending;
+    private final long sendTimeoutMs;
+    private final ThreadPoolExecutor dispatcher;
+
+    private final Set<Subscriber> allItems = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Set<Subscriber>> byLocation = new ConcurrentHashMap<>();
+
+    public StockStreamHub(
+            SkuIndex skuIndex,
+            LowStockIndex lowStockIndex,
+            @Value("${stockflow.stream.timeout-ms:3600000}") long timeoutMs,
+            @Value("${stockflow.stream.max-pending:1000}") int maxPending,
+            @Value("${stockflow.stream.threads:4}") int threads,
+            @Value("${stockflow.stream.max-threads:256}") int maxThreads,
+            @Value("${stockflow.stream.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.skuIndex = skuIndex;
+        this.lowStockIndex = lowStockIndex;
+        this.timeoutMs = timeoutMs;
+        this.maxPending = maxPending;
+        this.sendTimeoutMs = sendTimeoutMs;
+        // No queue: a drain either gets a thread now or is retried on the next change or heartbeat
+        this.dispatcher = new ThreadPoolExecutor(threads, Math.max(threads, maxThreads), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "stock-stream");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Open a stream of item-level changes, or of changes at one location
+     */
+    public SseEmitter subscribe(UUID locationId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, locationId);
+        if (locationId == null) {
+            allItems.add(subscriber);
+        } else {
+            // Added under the map's lock for the key, so a group is never dropped while joining it
+            byLocation.compute(locationId, (k, group) -> {
+                Set<Subscriber> members = group != null ? group : ConcurrentHashMap.newKeySet();
+                members.add(subscriber);
+                return members;
+            });
+        }
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        int count = allItems.size();
+        for (Set<Subscriber> group : byLocation.values()) {
+            count += group.size();
+        }
+        return count;
+    }
+
+    // Runs after the indexes have applied the same commit, so a send reads the new level
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockItemChanged(StockItemChangedEvent event) {
+        for (Subscriber subscriber : allItems) {
+            subscriber.mark(event.getStockItemId());
+        }
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockLocationChanged(StockLocationChangedEvent event) {
+        markAtLocation(event.getLocationId(), event.getStockItemId());
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onThresholdChanged(StockLocationThresholdChangedEvent event) {
+        markAtLocation(event.getLocationId(), event.getStockItemId());
+    }
+
+    /**
+     * Comment lines keep idle connections open through proxies and reveal
+     * clients that have gone away
+     */
+    @Scheduled(fixedDelayString = "${stockflow.stream.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        allItems.forEach(Subscriber::heartbeat);
+        byLocation.values().forEach(group -> group.forEach(Subscriber::heartbeat));
+    }
+
+    /**
+     * Close subscribers whose current send has been blocked for longer than the
+     * send timeout, so they stop taking dispatcher threads
+     */
+    @Scheduled(fixedDelayString = "${stockflow.stream.send-timeout-ms:10000}")
+    public void closeStalled() {
+        long now = System.currentTimeMillis();
+        allItems.forEach(subscriber -> subscriber.closeIfStalled(now));
+        byLocation.values().forEach(group -> group.forEach(subscriber -> subscriber.closeIfStalled(now)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        allItems.forEach(subscriber -> subscriber.emitter.complete());
+        byLocation.values().forEach(group -> group.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        if (subscriber.locationId == null) {
+            allItems.remove(subscriber);
+        } else {
+            byLocation.computeIfPresent(subscriber.locationId, (k, group) -> {
+                group.remove(subscriber);
+                return group.isEmpty() ? null : group;
+            });
+        }
+    }
+
+    private void markAtLocation(UUID locationId, UUID stockItemId) {
+        Set<Subscriber> group = byLocation.get(locationId);
+        if (group != null) {
+            for (Subscriber subscriber : group) {
+                subscriber.mark(stockItemId);
+            }
+        }
+    }
+
+    private Optional<StockLevelUpdate> currentLevel(UUID locationId, UUID stockItemId) {
+        if (locationId != null) {
+            return lowStockIndex.getLevelAtLocation(locationId, stockItemId);
+        }
+        return skuIndex.findById(stockItemId).map(item -> StockLevelUpdate.builder()
+                .stockItemId(stockItemId)
+                .quantity(item.getQuantity())
+                .status(item.getStatus())
+                .build());
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final UUID locationId;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+        // Start of the send in progress, or 0 between sends
+        private volatile long sendingSince;
+
+        // Guarded by this
+        private Set<UUID> pending = new LinkedHashSet<>();
+        private boolean overflowed;
+        private boolean heartbeatDue;
+
+        Subscriber(SseEmitter emitter, UUID locationId) {
+            this.emitter = emitter;
+            this.locationId = locationId;
+        }
+
+        void mark(UUID stockItemId) {
+            synchronized (this) {
+                if (overflowed) {
+                    return;
+                }
+                if (pending.add(stockItemId) && pending.size() > maxPending) {
+                    pending.clear();
+                    overflowed = true;
+                }
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                heartbeatDue = true;
+            }
+            schedule();
+        }
+
+        void closeIfStalled(long now) {
+            long since = sendingSince;
+            if (!closed && since != 0 && now - since > sendTimeoutMs) {
+                log.debug("Closing stock stream blocked for {} ms", now - since);
+                unsubscribe(this);
+                emitter.completeWithError(new IOException("Send timed out"));
+            }
+        }
+
+        private void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Every thread is busy; the pending items stay marked for the next try
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed) {
+                    Set<UUID> batch;
+                    boolean resync;
+                    boolean heartbeat;
+                    synchronized (this) {
+                        batch = pending;
+                        resync = overflowed;
+                        heartbeat = heartbeatDue;
+                        pending = new LinkedHashSet<>();
+                        overflowed = false;
+                        heartbeatDue = false;
+                    }
+                    if (batch.isEmpty() && !resync && !heartbeat) {
+                        break;
+                    }
+                    sendingSince = System.currentTimeMillis();
+                    try {
+                        send(batch, resync, heartbeat);
+                    } finally {
+                        sendingSince = 0;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; the emitter's callbacks unsubscribe it
+                log.debug("Closing stock stream: {}", e.getMessage());
+                closed = true;
+                emitter.completeWithError(e);
+            } finally {
+                scheduled.set(false);
+            }
+
+            // A change marked after the last check but before the flag was cleared
+            synchronized (this) {
+                if (!pending.isEmpty() || overflowed || heartbeatDue) {
+                    schedule();
+                }
+            }
+        }
+
+        private void send(Set<UUID> batch, boolean resync, boolean heartbeat) throws IOException {
+            if (resync) {
+                emitter.send(SseEmitter.event().name("resync").data("reload"));
+                return;
+            }
+            boolean sent = false;
+            for (UUID stockItemId : batch) {
+                Optional<StockLevelUpdate> update = currentLevel(locationId, stockItemId);
+                if (update.isPresent()) {
+                    emitter.send(SseEmitter.event().name("stock").data(update.get()));
+                    sent = true;
+                }
+            }
+            if (heartbeat && !sent) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.stockflow.api.service;
 
+import com.stockflow.api.dto.TransferLineResult;
+import com.stockflow.api.dto.TransferManifestLine;
+import com.stockflow.api.dto.TransferManifestRequest;
 import com.stockflow.api.dto.TransferRequest;
 import com.stockflow.api.enums.MovementType;
+import com.stockflow.api.event.StockLocationChangedEvent;
 import com.stockflow.api.exception.InsufficientStockException;
 import com.stockflow.api.exception.ResourceNotFoundException;
 import com.stockflow.api.model.Location;
@@ -16,10 +20,17 @@ import com.stockflow.api.repository.StockMovementRepository;
 
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -29,31 +40,57 @@ public class StockTransferService {
     private final StockLocationRepository stockLocationRepository;
     private final StockMovementRepository movementRepository;
     private final LocationRepository locationRepository;
+    private final LocationRegistry locationRegistry;
     private final StockItemRepository stockItemRepository;
+    private final EscrowService escrowService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean atomicUpdates;
 
     public StockTransferService(
             StockLocationRepository stockLocationRepository,
             StockMovementRepository movementRepository,
             LocationRepository locationRepository,
-            StockItemRepository stockItemRepository) {
+            LocationRegistry locationRegistry,
+            StockItemRepository stockItemRepository,
+            EscrowService escrowService,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${stockflow.stock.atomic-updates:false}") boolean atomicUpdates) {
         this.stockLocationRepository = stockLocationRepository;
         this.movementRepository = movementRepository;
         this.locationRepository = locationRepository;
+        this.locationRegistry = locationRegistry;
         this.stockItemRepository = stockItemRepository;
+        this.escrowService = escrowService;
+        this.eventPublisher = eventPublisher;
+        this.atomicUpdates = atomicUpdates;
     }
 
     public StockTransfer transferStock(TransferRequest request) {
+        StockTransfer transfer = atomicUpdates ? transferStockAtomically(request) : transferStockWithLocks(request);
+        publishTransfer(request.getStockItemId(), request.getSourceLocationId(), request.getTargetLocationId(),
+                request.getQuantity());
+        return transfer;
+    }
+
+    private StockTransfer transferStockWithLocks(TransferRequest request) {
+
         // Validate source has enough stock
         StockLocation sourceLocation = stockLocationRepository
                 .findByStockItemAndLocationWithLock(request.getStockItemId(), request.getSourceLocationId())
                 .orElseThrow(() -> new ResourceNotFoundException("Stock not found at source location"));
 
-        if (sourceLocation.getQuantity() < request.getQuantity()) {
-            throw new InsufficientStockException("Insufficient stock at source location");
-        }
+        if (sourceLocation.getEscrowBuckets() > 0) {
+            if (!escrowService.tryWithdraw(sourceLocation, request.getQuantity())) {
+                throw new InsufficientStockException("Insufficient stock at source location");
+            }
+        } else {
+            if (sourceLocation.getQuantity() < request.getQuantity()) {
+                throw new InsufficientStockException("Insufficient stock at source location");
+            }
 
-        // Update quantities
-        sourceLocation.setQuantity(sourceLocation.getQuantity() - request.getQuantity());
+            // Update quantities
+            sourceLocation.setQuantity(sourceLocation.getQuantity() - request.getQuantity());
+        }
 
         StockLocation targetLocation = stockLocationRepository
                 .findByStockItemAndLocationWithLock(request.getStockItemId(), request.getTargetLocationId())
@@ -77,11 +114,176 @@ public class StockTransferService {
         return new StockTransfer(outMovement, inMovement);
     }
 
+    /**
+     * Move stock with conditional updates on both rows instead of locking and
+     * reading them first. Only a missing target row needs to be loaded.
+     */
+    private StockTransfer transferStockAtomically(TransferRequest request) {
+        if (stockLocationRepository
+                .decrementQuantity(request.getStockItemId(), request.getSourceLocationId(), request.getQuantity())
+                .isEmpty()) {
+            // Either short of stock or held in escrow buckets
+            StockLocation sourceLocation = stockLocationRepository
+                    .findByStockItemIdAndLocationId(request.getStockItemId(), request.getSourceLocationId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Stock not found at source location"));
+            if (sourceLocation.getEscrowBuckets() == 0
+                    || !escrowService.tryWithdraw(sourceLocation, request.getQuantity())) {
+                throw new InsufficientStockException("Insufficient stock at source location");
+            }
+        }
+
+        if (stockLocationRepository
+                .incrementQuantity(request.getStockItemId(), request.getTargetLocationId(), request.getQuantity())
+                .isEmpty()) {
+            StockLocation targetLocation = createNewStockLocation(request);
+            targetLocation.setQuantity(request.getQuantity());
+        }
+
+        // Both rows exist at this point, so references are enough for the movements
+        StockItem stockItem = stockItemRepository.getReferenceById(request.getStockItemId());
+
+        StockMovement outMovement = createMovement(
+                stockItem,
+                request.getQuantity(),
+                MovementType.OUT,
+                locationRepository.getReferenceById(request.getSourceLocationId()));
+
+        StockMovement inMovement = createMovement(
+                stockItem,
+                request.getQuantity(),
+                MovementType.IN,
+                locationRepository.getReferenceById(request.getTargetLocationId()));
+
+        return new StockTransfer(outMovement, inMovement);
+    }
+
+    /**
+     * Move many items between the same two locations. Both locations' rows are locked
+     * in one ordered query, missing target rows are created together and the movement
+     * pairs are inserted as batches on commit. Lines that cannot be moved are reported
+     * in their result instead of failing the whole manifest.
+     */
+    public List<TransferLineResult> transferManifest(TransferManifestRequest request) {
+        UUID sourceId = request.getSourceLocationId();
+        UUID targetId = request.getTargetLocationId();
+        if (sourceId.equals(targetId)) {
+            throw new IllegalArgumentException("Source and target locations must be different");
+        }
+
+        Location source = locationRegistry.findReference(sourceId)
+                .orElseThrow(() -> new ResourceNotFoundException("Source location not found"));
+        Location target = locationRegistry.findReference(targetId)
+                .orElseThrow(() -> new ResourceNotFoundException("Target location not found"));
+
+        List<TransferManifestLine> lines = request.getLines();
+        Set<UUID> itemIds = new LinkedHashSet<>();
+        for (TransferManifestLine line : lines) {
+            itemIds.add(line.getStockItemId());
+        }
+
+        Map<UUID, StockLocation> sourceRows = new HashMap<>();
+        Map<UUID, StockLocation> targetRows = new HashMap<>();
+        for (StockLocation row : stockLocationRepository.findTransferRowsWithLock(sourceId, targetId, itemIds)) {
+            Map<UUID, StockLocation> rows = row.getLocation().getId().equals(sourceId) ? sourceRows : targetRows;
+            rows.put(row.getStockItem().getId(), row);
+        }
+
+        // Source rows in escrow mode are not locked above; they are taken from their buckets
+        if (sourceRows.size() < itemIds.size()) {
+            List<UUID> unlockedItems = itemIds.stream()
+                    .filter(itemId -> !sourceRows.containsKey(itemId))
+                    .toList();
+            for (StockLocation row : stockLocationRepository.findEscrowByLocationAndStockItems(sourceId, unlockedItems)) {
+                sourceRows.put(row.getStockItem().getId(), row);
+            }
+        }
+
+        String reference = request.getReference() != null
+                ? request.getReference()
+                : "TRF-" + UUID.randomUUID().toString().substring(0, 8);
+
+        List<StockLocation> newRows = new ArrayList<>();
+        List<StockMovement> movements = new ArrayList<>();
+        StockMovement[] outMovements = new StockMovement[lines.size()];
+        StockMovement[] inMovements = new StockMovement[lines.size()];
+        String[] errors = new String[lines.size()];
+
+        for (int i = 0; i < lines.size(); i++) {
+            TransferManifestLine line = lines.get(i);
+            StockLocation sourceRow = sourceRows.get(line.getStockItemId());
+            if (sourceRow == null) {
+                errors[i] = "Stock not found at source location";
+                continue;
+            }
+
+            if (sourceRow.getEscrowBuckets() > 0) {
+                if (!escrowService.tryWithdraw(sourceRow, line.getQuantity())) {
+                    errors[i] = "Insufficient stock at source location";
+                    continue;
+                }
+            } else if (sourceRow.getQuantity() < line.getQuantity()) {
+                errors[i] = "Insufficient stock at source location. Available: " + sourceRow.getQuantity();
+                continue;
+            } else {
+                sourceRow.setQuantity(sourceRow.getQuantity() - line.getQuantity());
+            }
+
+            StockLocation targetRow = targetRows.computeIfAbsent(line.getStockItemId(), itemId -> {
+                StockLocation row = new StockLocation();
+                row.setStockItem(sourceRow.getStockItem());
+                row.setLocation(target);
+                row.setQuantity(0);
+                row.setOpeningQuantity(0);
+                newRows.add(row);
+                return row;
+            });
+            targetRow.setQuantity(targetRow.getQuantity() + line.getQuantity());
+
+            outMovements[i] = buildMovement(sourceRow.getStockItem(), line.getQuantity(), MovementType.OUT,
+                    source, reference, request.getNotes());
+            inMovements[i] = buildMovement(sourceRow.getStockItem(), line.getQuantity(), MovementType.IN,
+                    target, reference, request.getNotes());
+            movements.add(outMovements[i]);
+            movements.add(inMovements[i]);
+            publishTransfer(line.getStockItemId(), sourceId, targetId, line.getQuantity());
+        }
+
+        // Row updates, new rows and movements are all flushed as JDBC batches on commit
+        stockLocationRepository.saveAll(newRows);
+        movementRepository.saveAll(movements);
+
+        List<TransferLineResult> results = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            TransferManifestLine line = lines.get(i);
+            TransferLineResult.TransferLineResultBuilder result = TransferLineResult.builder()
+                    .index(i)
+                    .stockItemId(line.getStockItemId())
+                    .success(errors[i] == null);
+            if (errors[i] != null) {
+                result.error(errors[i]);
+            } else {
+                StockLocation sourceRow = sourceRows.get(line.getStockItemId());
+                result.outMovementId(outMovements[i].getId())
+                        .inMovementId(inMovements[i].getId())
+                        // Escrow rows keep part of their stock in buckets, so the row alone is not the total
+                        .sourceQuantity(sourceRow.getEscrowBuckets() > 0 ? null : sourceRow.getQuantity())
+                        .targetQuantity(targetRows.get(line.getStockItemId()).getQuantity());
+            }
+            results.add(result.build());
+        }
+        return results;
+    }
+
+    private void publishTransfer(UUID stockItemId, UUID sourceId, UUID targetId, int quantity) {
+        eventPublisher.publishEvent(new StockLocationChangedEvent(sourceId, stockItemId, -quantity));
+        eventPublisher.publishEvent(new StockLocationChangedEvent(targetId, stockItemId, quantity));
+    }
+
     private StockLocation createNewStockLocation(TransferRequest request) {
         StockItem stockItem = stockItemRepository.findById(request.getStockItemId())
                 .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
 
-        Location targetLocation = locationRepository.findById(request.getTargetLocationId())
+        Location targetLocation = locationRegistry.findReference(request.getTargetLocationId())
                 .orElseThrow(() -> new ResourceNotFoundException("Target location not found"));
 
         StockLocation newStockLocation = new StockLocation();
@@ -95,22 +297,22 @@ public class StockTransferService {
 
     private StockMovement createMovement(StockItem stockItem, Integer quantity,
             MovementType type, Location location) {
-        StockMovement movement = new StockMovement();
-        movement.setStockItem(stockItem);
-        movement.setQuantity(quantity);
-        movement.setType(type);
-        movement.setLocation(location);
-
         // Generate reference based on type
         String prefix = type == MovementType.IN ? "IN-" : "OUT-";
-        movement.setReference(prefix + UUID.randomUUID().toString().substring(0, 8));
+        String reference = prefix + UUID.randomUUID().toString().substring(0, 8);
 
-        return movementRepository.save(movement);
+        return movementRepository.save(buildMovement(stockItem, quantity, type, location, reference, null));
     }
 
-    @Scheduled(cron = "0 0 0 * * *") // Run at midnight
-    @Transactional
-    public void updateOpeningStock() {
-        stockLocationRepository.updateAllOpeningQuantities();
+    private StockMovement buildMovement(StockItem stockItem, Integer quantity, MovementType type,
+            Location location, String reference, String notes) {
+        StockMovement movement = new StockMovement();
+        movement.setStockItem(stockItem);
+        movement.setQuantity(quantity);
+        movement.setType(type);
+        movement.setLocation(location);
+        movement.setReference(reference);
+        movement.setNotes(notes);
+        return movement;
     }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.stockflow.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockflow.api.dto.CreateSaleRequest;
+import com.stockflow.api.dto.LocationDTO;
+import com.stockflow.api.dto.StockItemDTO;
+import com.stockflow.api.dto.StockMovementRequest;
+import com.stockflow.api.dto.SyncAction;
+import com.stockflow.api.dto.SyncResult;
+import com.stockflow.api.dto.TransferRequest;
+import com.stockflow.api.enums.SyncActionType;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Replays a desktop client's offline queue in order, committing it in chunks
+ */
+@Service
+@Slf4j
+public class SyncService {
+    private final StockService stockService;
+    private final StockTransferService transferService;
+    private final SaleService saleService;
+    private final LocationService locationService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public SyncService(
+            StockService stockService,
+            StockTransferService transferService,
+            SaleService saleService,
+            LocationService locationService,
+            TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper,
+            Validator validator,
+            @Value("${stockflow.sync.chunk-size:100}") int chunkSize) {
+        this.stockService = stockService;
+        this.transferService = transferService;
+        this.saleService = saleService;
+        this.locationService = locationService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<SyncResult> applyQueue(List<SyncAction> actions) {
+        List<SyncResult> results = new ArrayList<>(actions.size());
+        for (int start = 0; start < actions.size(); start += chunkSize) {
+            List<SyncAction> chunk = actions.subList(start, Math.min(start + chunkSize, actions.size()));
+            results.addAll(applyChunk(chunk));
+        }
+        return results;
+    }
+
+    private List<SyncResult> applyChunk(List<SyncAction> chunk) {
+        try {
+            return transactionTemplate.execute(status -> {
+                List<SyncResult> chunkResults = new ArrayList<>(chunk.size());
+                for (SyncAction action : chunk) {
+                    apply(action);
+                    chunkResults.add(SyncResult.ok(action.getId()));
+                }
+                return chunkResults;
+            });
+        } catch (RuntimeException e) {
+            // A failing action rolls back the whole chunk, so replay it one action per transaction
+            log.debug("Sync chunk of {} actions failed, replaying individually: {}", chunk.size(), e.getMessage());
+            List<SyncResult> chunkResults = new ArrayList<>(chunk.size());
+            for (SyncAction action : chunk) {
+                chunkResults.add(applyIsolated(action));
+            }
+            return chunkResults;
+        }
+    }
+
+    private SyncResult applyIsolated(SyncAction action) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(action));
+            return SyncResult.ok(action.getId());
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply sync action {} ({} {}): {}",
+                    action.getId(), action.getType(), action.getEntity(), e.getMessage());
+            return SyncResult.failed(action.getId(), e.getMessage());
+        }
+    }
+
+    private void apply(SyncAction action) {
+        switch (action.getEntity()) {
+            case MOVEMENT -> {
+                requireCreate(action);
+                stockService.recordMovement(read(action, StockMovementRequest.class));
+            }
+            case TRANSFER -> {
+                requireCreate(action);
+                transferService.transferStock(read(action, TransferRequest.class));
+            }
+            case SALE -> {
+                requireCreate(action);
+                saleService.createSale(read(action, CreateSaleRequest.class));
+            }
+            case STOCK -> {
+                switch (action.getType()) {
+                    case CREATE -> stockService.createStockItem(read(action, StockItemDTO.class));
+                    case UPDATE -> stockService.updateStockItem(readId(action), read(action, StockItemDTO.class));
+                    default -> throw unsupported(action);
+                }
+            }
+            case LOCATION -> {
+                switch (action.getType()) {
+                    case CREATE -> locationService.createLocation(read(action, LocationDTO.class));
+                    case UPDATE -> locationService.updateLocation(readId(action), read(action, LocationDTO.class));
+                    case DELETE -> locationService.deleteLocation(readId(action));
+                }
+            }
+        }
+    }
+
+    private void requireCreate(SyncAction action) {
+        if (action.getType() != SyncActionType.CREATE) {
+            throw unsupported(action);
+        }
+    }
+
+    private IllegalArgumentException unsupported(SyncAction action) {
+        return new IllegalArgumentException(
+                "Unsupported sync action: " + action.getType() + " " + action.getEntity());
+    }
+
+    private <T> T read(SyncAction action, Class<T> type) {
+        if (action.getData() == null || action.getData().isNull()) {
+            throw new IllegalArgumentException("Sync action " + action.getId() + " has no data");
+        }
+
+        T value = objectMapper.convertValue(action.getData(), type);
+        Set<ConstraintViolation<T>> violations = validator.validate(value);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return value;
+    }
+
+    private UUID readId(SyncAction action) {
+        JsonNode id = action.getData() != null ? action.getData().get("id") : null;
+        if (id == null || id.isNull()) {
+            throw new IllegalArgumentException("Sync action " + action.getId() + " has no entity id");
+        }
+        return UUID.fromString(id.asText());
+    }
+}
@@ -0,0 +1,69 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.event.LocationChangedEvent;
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.event.StockLocationChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version stamps for the polled listings, used as their ETags. Each stamp is a
+ * counter bumped when a change to the listing commits, prefixed with an id that
+ * is new on every start so tags from before a restart never match.
+ *
+ * Stamps are bumped after the caches have applied the same commit, and handlers
+ * read the stamp before the data, so a response can only carry a tag older than
+ * its content (costing one extra full response), never a newer one.
+ */
+@Component
+public class VersionStamps {
+    private final String bootId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final AtomicLong catalog = new AtomicLong();
+    private final AtomicLong locations = new AtomicLong();
+    private final Map<UUID, AtomicLong> inventories = new ConcurrentHashMap<>();
+
+    public String catalogTag() {
+        return "\"" + bootId + "-c" + catalog.get() + "\"";
+    }
+
+    public String locationsTag() {
+        return "\"" + bootId + "-l" + locations.get() + "\"";
+    }
+
+    // Inventory listings also show item columns, so they change with the catalog too
+    public String inventoryTag(UUID locationId) {
+        AtomicLong inventory = inventories.get(locationId);
+        return "\"" + bootId + "-c" + catalog.get() + "-i" + (inventory != null ? inventory.get() : 0) + "\"";
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockItemChanged(StockItemChangedEvent event) {
+        catalog.incrementAndGet();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockLocationChanged(StockLocationChangedEvent event) {
+        inventories.computeIfAbsent(event.getLocationId(), k -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLocationChanged(LocationChangedEvent event) {
+        if (event.isDeleted()) {
+            inventories.remove(event.getLocationId());
+        }
+        locations.incrementAndGet();
+    }
+}
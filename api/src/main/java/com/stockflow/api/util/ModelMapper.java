@@ -1,7 +1,13 @@
 package com.stockflow.api.util;
 
 import com.stockflow.api.dto.LocationDTO;
+import com.stockflow.api.dto.SaleDTO;
+import com.stockflow.api.dto.SaleItemDTO;
+import com.stockflow.api.dto.StockItemDTO;
 import com.stockflow.api.model.Location;
+import com.stockflow.api.model.Sale;
+import com.stockflow.api.model.SaleItem;
+import com.stockflow.api.model.StockItem;
 
 /**
  * Utility class for mapping entities to DTOs and vice versa
@@ -35,4 +41,55 @@ public class ModelMapper {
         
         return location;
     }
+    
+    // Stock item mappings
+    public static StockItemDTO toStockItemDTO(StockItem item) {
+        if (item == null) {
+            return null;
+        }
+        
+        return StockItemDTO.builder()
+                .id(item.getId())
+                .name(item.getName())
+                .sku(item.getSku())
+                .price(item.getPrice())
+                .quantity(item.getQuantity())
+                .status(item.getStatus())
+                .reorderThreshold(item.getReorderThreshold())
+                .createdAt(item.getCreatedAt())
+                .updatedAt(item.getUpdatedAt())
+                .build();
+    }
+    
+    // Sale mappings
+    public static SaleDTO toSaleDTO(Sale sale) {
+        if (sale == null) {
+            return null;
+        }
+        
+        Location location = sale.getLocation();
+        return SaleDTO.builder()
+                .id(sale.getId())
+                .customerName(sale.getCustomerName())
+                .customerPhone(sale.getCustomerPhone())
+                .items(sale.getItems().stream().map(ModelMapper::toSaleItemDTO).toList())
+                .locationId(location != null ? location.getId() : null)
+                .locationName(location != null ? location.getName() : null)
+                .total(sale.getTotal())
+                .reference(sale.getReference())
+                .status(sale.getStatus())
+                .createdAt(sale.getCreatedAt())
+                .updatedAt(sale.getUpdatedAt())
+                .build();
+    }
+    
+    public static SaleItemDTO toSaleItemDTO(SaleItem item) {
+        return SaleItemDTO.builder()
+                .id(item.getId())
+                .stockItemId(item.getStockItem().getId())
+                .quantity(item.getQuantity())
+                .price(item.getPrice())
+                .total(item.getTotal())
+                .build();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+-- End-of-day stock per location and item, one row per day. History outlives the
+-- location and item rows, so there are no foreign keys.
+CREATE TABLE stock_daily_snapshots (
+    snapshot_date DATE NOT NULL,
+    location_id UUID NOT NULL,
+    stock_item_id UUID NOT NULL,
+    opening_quantity INTEGER NOT NULL,
+    incoming INTEGER NOT NULL,
+    outgoing INTEGER NOT NULL,
+    closing_quantity INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (snapshot_date, location_id, stock_item_id)
+);
@@ -0,0 +1,20 @@
+-- Movements per hour, item, location and type, kept by the rollup tailer.
+-- Movements without a location are stored under the nil UUID so the key can be the primary key.
+CREATE TABLE stock_movement_rollups (
+    bucket_start TIMESTAMP NOT NULL,
+    stock_item_id UUID NOT NULL,
+    location_id UUID NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    movement_count INTEGER NOT NULL,
+    quantity BIGINT NOT NULL,
+    PRIMARY KEY (bucket_start, stock_item_id, location_id, type)
+);
+
+-- How far each tailer has got; every hour before the watermark has been rolled up
+CREATE TABLE rollup_watermarks (
+    name VARCHAR(50) PRIMARY KEY,
+    watermark TIMESTAMP NOT NULL
+);
+
+-- The tailer reads movements by time range alone
+CREATE INDEX IF NOT EXISTS idx_stock_movements_created ON stock_movements(created_at);
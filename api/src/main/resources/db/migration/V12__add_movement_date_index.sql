@@ -0,0 +1,2 @@
+-- Rollups and report edges read movements by time range alone; V11 already creates it on new databases
+CREATE INDEX IF NOT EXISTS idx_stock_movements_created ON stock_movements(created_at);
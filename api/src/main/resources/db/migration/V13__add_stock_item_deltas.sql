@@ -0,0 +1,10 @@
+-- Global quantity changes from escrow sales, appended by each sale and folded
+-- into stock_items in the background so sales never write the hot item row
+CREATE TABLE stock_item_deltas (
+    id BIGSERIAL PRIMARY KEY,
+    stock_item_id UUID NOT NULL REFERENCES stock_items(id),
+    delta INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_stock_item_deltas_item ON stock_item_deltas(stock_item_id);
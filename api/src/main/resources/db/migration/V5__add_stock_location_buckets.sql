@@ -0,0 +1,39 @@
+-- Opt-in escrow: a hot item-location quantity can be split across sub-buckets
+ALTER TABLE stock_locations
+ADD COLUMN escrow_buckets INTEGER NOT NULL DEFAULT 0;
+
+CREATE TABLE stock_location_buckets (
+    id UUID PRIMARY KEY,
+    stock_location_id UUID NOT NULL REFERENCES stock_locations(id),
+    bucket_no INTEGER NOT NULL,
+    quantity INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    CONSTRAINT unique_stock_location_bucket UNIQUE (stock_location_id, bucket_no),
+    CONSTRAINT chk_stock_location_buckets_quantity_non_negative CHECK (quantity >= 0)
+);
+
+CREATE INDEX idx_stock_locations_escrow ON stock_locations(escrow_buckets) WHERE escrow_buckets > 0;
+
+-- Inventory by location includes stock held in escrow buckets
+CREATE OR REPLACE VIEW inventory_by_location AS
+SELECT
+    l.id AS location_id,
+    l.name AS location_name,
+    l.type AS location_type,
+    si.id AS stock_item_id,
+    si.name AS item_name,
+    si.sku,
+    si.price,
+    COALESCE(sl.quantity, 0) + COALESCE(
+        (SELECT SUM(b.quantity) FROM stock_location_buckets b WHERE b.stock_location_id = sl.id), 0
+    ) AS quantity,
+    si.status
+FROM
+    locations l
+CROSS JOIN
+    stock_items si
+LEFT JOIN
+    stock_locations sl ON l.id = sl.location_id AND si.id = sl.stock_item_id
+ORDER BY
+    l.name, si.name;
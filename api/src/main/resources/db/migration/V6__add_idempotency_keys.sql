@@ -0,0 +1,12 @@
+-- Responses to idempotent POSTs, kept so retried requests survive a restart
+CREATE TABLE idempotency_keys (
+    id UUID PRIMARY KEY,
+    idempotency_key VARCHAR(255) NOT NULL UNIQUE,
+    status_code INTEGER NOT NULL,
+    content_type VARCHAR(100),
+    body BYTEA,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_idempotency_keys_created ON idempotency_keys(created_at);
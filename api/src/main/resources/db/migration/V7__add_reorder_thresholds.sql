@@ -0,0 +1,8 @@
+-- Reorder thresholds; NULL falls back to the item's threshold, then the configured default
+ALTER TABLE stock_items ADD COLUMN reorder_threshold INTEGER;
+ALTER TABLE stock_locations ADD COLUMN reorder_threshold INTEGER;
+
+ALTER TABLE stock_items ADD CONSTRAINT check_item_reorder_threshold
+    CHECK (reorder_threshold IS NULL OR reorder_threshold >= 0);
+ALTER TABLE stock_locations ADD CONSTRAINT check_location_reorder_threshold
+    CHECK (reorder_threshold IS NULL OR reorder_threshold >= 0);
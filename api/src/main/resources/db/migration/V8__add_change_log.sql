@@ -0,0 +1,16 @@
+-- Change feed: one row per changed record, ordered by writing transaction then sequence.
+-- Rows are only served once every older transaction has finished, so a cursor never skips
+-- a row that commits late.
+CREATE SEQUENCE change_log_seq INCREMENT BY 50;
+
+CREATE TABLE change_log (
+    seq BIGINT PRIMARY KEY,
+    txid BIGINT NOT NULL DEFAULT pg_current_xact_id()::text::bigint,
+    entity VARCHAR(20) NOT NULL,
+    entity_id UUID NOT NULL,
+    location_id UUID,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_change_log_txid_seq ON change_log(txid, seq);
+CREATE INDEX idx_change_log_created ON change_log(created_at);
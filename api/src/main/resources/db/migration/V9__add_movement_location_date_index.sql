@@ -0,0 +1,2 @@
+-- Consolidation reads one location's movements for a day at a time
+CREATE INDEX idx_stock_movements_location_date ON stock_movements(location_id, created_at);
@@ -0,0 +1,170 @@
+package com.stockflow.api.api;
+
+import com.stockflow.api.dto.report.StockReport;
+import com.stockflow.api.service.MovementRollupService;
+import com.stockflow.api.service.ReportingService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Times the stock report over a fixed one-week window while the history before
+ * the window grows. Report time should follow the window, not the history.
+ * Runs against its own database from the bench profile (BENCH_DB_* variables,
+ * stockflow_bench by default), never the application's, and removes its rows
+ * afterwards so runs stay comparable.
+ *
+ * Run with: mvn test -Dtest=StockReportBenchmarkTests -Dstockflow.bench=true
+ * [-Dstockflow.bench.history=0,250000,1000000]
+ */
+@SpringBootTest
+@ActiveProfiles("bench")
+@EnabledIfSystemProperty(named = "stockflow.bench", matches = "true")
+@Slf4j
+class StockReportBenchmarkTests {
+    private static final int ITEMS = 500;
+    private static final int WINDOW_MOVEMENTS = 20_000;
+    private static final int WINDOW_SALES = 2_000;
+    private static final int RUNS = 5;
+    private static final String TAILER = "stock_movements_hourly";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReportingService reportingService;
+
+    @Autowired
+    private MovementRollupService rollupService;
+
+    @Test
+    void stockReportTimeFollowsWindowNotHistory() {
+        LocalDateTime end = LocalDateTime.now();
+        LocalDateTime start = end.minusDays(7);
+        LocalDateTime historyStart = start.minusDays(90);
+
+        try {
+            insertItems();
+            insertMovements(WINDOW_MOVEMENTS, start, end);
+            insertSales(WINDOW_SALES, start, end);
+
+            long history = 0;
+            for (long size : historySizes()) {
+                insertMovements(size - history, historyStart, start.minusDays(1));
+                insertSales((size - history) / 10, historyStart, start.minusDays(1));
+                history = size;
+                catchUpRollups(historyStart);
+
+                List<StockReport> report = reportingService.generateStockReport(start, end);
+                long benchMovements = report.stream()
+                        .filter(line -> line.getSku().startsWith("BENCH-"))
+                        .mapToLong(StockReport::getMovementsCount)
+                        .sum();
+                assertEquals(WINDOW_MOVEMENTS, benchMovements);
+
+                log.info("Stock report with {} history movements: median {} ms over {} runs",
+                        size, medianMillis(start, end), RUNS);
+            }
+        } finally {
+            deleteBenchRows();
+        }
+    }
+
+    private long medianMillis(LocalDateTime start, LocalDateTime end) {
+        reportingService.generateStockReport(start, end);
+        List<Long> times = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            long began = System.nanoTime();
+            reportingService.generateStockReport(start, end);
+            times.add((System.nanoTime() - began) / 1_000_000);
+        }
+        Collections.sort(times);
+        return times.get(RUNS / 2);
+    }
+
+    private void catchUpRollups(LocalDateTime historyStart) {
+        // History was written behind the watermark, so roll up again from its start
+        jdbcTemplate.update("""
+                INSERT INTO rollup_watermarks (name, watermark) VALUES (?, date_trunc('hour', CAST(? AS timestamp)))
+                ON CONFLICT (name) DO UPDATE SET watermark = EXCLUDED.watermark
+                """, TAILER, historyStart);
+        Optional<LocalDateTime> previous = Optional.empty();
+        while (true) {
+            rollupService.rollUp();
+            Optional<LocalDateTime> watermark = rollupService.getWatermark();
+            if (watermark.equals(previous)) {
+                return;
+            }
+            previous = watermark;
+        }
+    }
+
+    private void insertItems() {
+        jdbcTemplate.update("""
+                INSERT INTO stock_items (id, name, sku, price, quantity, status, created_at, updated_at)
+                SELECT gen_random_uuid(), 'Bench item ' || g, 'BENCH-' || lpad(g::text, 5, '0'),
+                    9.99, 100, 'ACTIVE', now(), now()
+                FROM generate_series(1, ?) g
+                """, ITEMS);
+    }
+
+    private void insertMovements(long count, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.update("""
+                WITH items AS (SELECT array_agg(id) AS ids FROM stock_items WHERE sku LIKE 'BENCH-%')
+                INSERT INTO stock_movements (id, stock_item_id, quantity, type, reference, created_at, updated_at)
+                SELECT gen_random_uuid(), items.ids[1 + g % ?], 1 + g % 5,
+                    CASE WHEN g % 2 = 0 THEN 'IN' ELSE 'OUT' END, 'BENCH',
+                    CAST(? AS timestamp) + random() * (CAST(? AS timestamp) - CAST(? AS timestamp)), now()
+                FROM items, generate_series(1, ?) g
+                """, ITEMS, from, to, from, count);
+    }
+
+    private void insertSales(long count, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.update("""
+                WITH items AS (SELECT array_agg(id) AS ids FROM stock_items WHERE sku LIKE 'BENCH-%'),
+                new_sales AS (
+                    INSERT INTO sales (id, total, reference, status, created_at, updated_at)
+                    SELECT gen_random_uuid(), 3, 'BENCH-' || gen_random_uuid(), 'COMPLETED', ts, ts
+                    FROM (
+                        SELECT CAST(? AS timestamp) + random() * (CAST(? AS timestamp) - CAST(? AS timestamp)) AS ts
+                        FROM generate_series(1, ?)
+                    ) s
+                    RETURNING id
+                )
+                INSERT INTO sale_items (id, sale_id, stock_item_id, quantity, price, total, created_at, updated_at)
+                SELECT gen_random_uuid(), new_sales.id, items.ids[1 + floor(random() * ?)::int], 1, 1, 1, now(), now()
+                FROM new_sales, items, generate_series(1, 3)
+                """, from, to, from, count, ITEMS);
+    }
+
+    private void deleteBenchRows() {
+        jdbcTemplate.update("DELETE FROM sale_items WHERE sale_id IN (SELECT id FROM sales WHERE reference LIKE 'BENCH-%')");
+        jdbcTemplate.update("DELETE FROM sales WHERE reference LIKE 'BENCH-%'");
+        jdbcTemplate.update("DELETE FROM stock_movements WHERE reference = 'BENCH'");
+        jdbcTemplate.update("""
+                DELETE FROM stock_movement_rollups
+                WHERE stock_item_id IN (SELECT id FROM stock_items WHERE sku LIKE 'BENCH-%')
+                """);
+        jdbcTemplate.update("DELETE FROM stock_items WHERE sku LIKE 'BENCH-%'");
+    }
+
+    private static List<Long> historySizes() {
+        return Arrays.stream(System.getProperty("stockflow.bench.history", "0,250000,1000000").split(","))
+                .map(String::trim)
+                .map(Long::parseLong)
+                .toList();
+    }
+}
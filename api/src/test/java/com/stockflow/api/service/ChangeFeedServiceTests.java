@@ -0,0 +1,146 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.ChangeDTO;
+import com.stockflow.api.dto.ChangeFeedDTO;
+import com.stockflow.api.enums.ChangeEntity;
+import com.stockflow.api.model.ChangeLogEntry;
+import com.stockflow.api.repository.ChangeLogRepository;
+import com.stockflow.api.repository.LocationRepository;
+import com.stockflow.api.repository.StockItemRepository;
+import com.stockflow.api.repository.StockLocationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChangeFeedServiceTests {
+    private final ChangeLogRepository repository = mock(ChangeLogRepository.class);
+    private final ChangeFeedService service = new ChangeFeedService(
+            repository,
+            mock(StockItemRepository.class),
+            mock(StockLocationRepository.class),
+            mock(LocationRepository.class),
+            mock(StockCatalogCache.class),
+            7);
+
+    // Rows written so far, and the oldest transaction still running; the database serves rows below it
+    private final List<ChangeLogEntry> log = new ArrayList<>();
+    private long snapshotXmin = Long.MAX_VALUE;
+
+    @BeforeEach
+    void serveLogLikeTheDatabase() {
+        when(repository.findChangesAfter(anyLong(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            long txid = invocation.getArgument(0);
+            long seq = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return log.stream()
+                    .filter(entry -> entry.getTxid() > txid || (entry.getTxid() == txid && entry.getSeq() > seq))
+                    .filter(entry -> entry.getTxid() < snapshotXmin)
+                    .sorted(Comparator.comparing(ChangeLogEntry::getTxid).thenComparing(ChangeLogEntry::getSeq))
+                    .limit(limit)
+                    .toList();
+        });
+    }
+
+    @Test
+    void servesOnlyRowsOlderThanEveryRunningTransaction() throws NoSuchMethodException {
+        String query = ChangeLogRepository.class
+                .getMethod("findChangesAfter", long.class, long.class, int.class)
+                .getAnnotation(Query.class).value();
+
+        assertTrue(query.contains("(txid, seq) > (:txid, :seq)"), query);
+        assertTrue(query.contains("txid < pg_snapshot_xmin(pg_current_snapshot())"), query);
+        assertTrue(query.contains("ORDER BY txid, seq"), query);
+    }
+
+    @Test
+    void holdsTheCursorWhileAnOlderTransactionIsStillRunning() {
+        UUID early = UUID.randomUUID();
+        UUID late = UUID.randomUUID();
+
+        // Transaction 12 takes its sequence values first but commits after 13
+        ChangeFeedDTO first = service.getChanges(null, 10);
+        write(13, 150, late);
+        snapshotXmin = 12;
+        ChangeFeedDTO whileRunning = service.getChanges(first.getNextCursor(), 10);
+
+        assertTrue(whileRunning.getChanges().isEmpty());
+        assertEquals(first.getNextCursor(), whileRunning.getNextCursor());
+
+        write(12, 100, early);
+        snapshotXmin = 14;
+        ChangeFeedDTO afterCommit = service.getChanges(whileRunning.getNextCursor(), 10);
+
+        assertEquals(List.of(early, late), ids(afterCommit));
+        assertEquals("13.150", afterCommit.getNextCursor());
+    }
+
+    @Test
+    void pagesForwardWithoutSkippingOrRepeatingRows() {
+        List<UUID> written = new ArrayList<>();
+        long seq = 0;
+        for (long txid = 20; txid < 30; txid++) {
+            for (int i = 0; i < 3; i++) {
+                UUID id = UUID.randomUUID();
+                write(txid, ++seq, id);
+                written.add(id);
+            }
+        }
+
+        List<UUID> read = new ArrayList<>();
+        String cursor = null;
+        long[] previous = {0, 0};
+        ChangeFeedDTO page;
+        do {
+            page = service.getChanges(cursor, 4);
+            read.addAll(ids(page));
+            cursor = page.getNextCursor();
+
+            long[] next = parse(cursor);
+            assertTrue(next[0] > previous[0] || (next[0] == previous[0] && next[1] >= previous[1]),
+                    "Cursor moved back from " + previous[0] + "." + previous[1] + " to " + cursor);
+            previous = next;
+        } while (page.isHasMore());
+
+        assertEquals(written, read);
+        assertTrue(service.getChanges(cursor, 4).getChanges().isEmpty());
+        assertFalse(service.getChanges(cursor, 4).isHasMore());
+    }
+
+    @Test
+    void rejectsACursorItDidNotIssue() {
+        assertThrows(IllegalArgumentException.class, () -> service.getChanges("12", 10));
+        assertThrows(IllegalArgumentException.class, () -> service.getChanges("a.b", 10));
+    }
+
+    private void write(long txid, long seq, UUID itemId) {
+        ChangeLogEntry entry = new ChangeLogEntry();
+        entry.setTxid(txid);
+        entry.setSeq(seq);
+        entry.setEntity(ChangeEntity.STOCK_ITEM);
+        entry.setEntityId(itemId);
+        log.add(entry);
+    }
+
+    private static List<UUID> ids(ChangeFeedDTO page) {
+        return page.getChanges().stream().map(ChangeDTO::getId).toList();
+    }
+
+    private static long[] parse(String cursor) {
+        String[] parts = cursor.split("\\.");
+        return new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+    }
+}
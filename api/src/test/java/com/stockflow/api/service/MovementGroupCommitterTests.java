@@ -0,0 +1,132 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.StockMovementRequest;
+import com.stockflow.api.enums.MovementType;
+import com.stockflow.api.exception.InsufficientStockException;
+import com.stockflow.api.model.StockMovement;
+import com.stockflow.api.service.StockService.MovementOutcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovementGroupCommitterTests {
+    private final StockService stockService = mock(StockService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private MovementGroupCommitter committer;
+
+    @AfterEach
+    void shutdown() {
+        if (committer != null) {
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void failsOnlyTheLineThatCannotBeApplied() throws Exception {
+        // A long window, so the batch is flushed by reaching its size
+        committer = committer(60_000, 3);
+        UUID itemId = UUID.randomUUID();
+        StockMovement first = new StockMovement();
+        StockMovement third = new StockMovement();
+        InsufficientStockException shortfall = new InsufficientStockException("Insufficient stock. Available: 2");
+        runCallbacksInline();
+        when(stockService.applyMovements(anyList())).thenReturn(List.of(
+                MovementOutcome.applied(first, 8),
+                MovementOutcome.failed(shortfall),
+                MovementOutcome.applied(third, 5)));
+
+        List<StockMovementRequest> requests = List.of(
+                request(itemId, MovementType.IN, 10),
+                request(itemId, MovementType.OUT, 20),
+                request(itemId, MovementType.OUT, 3));
+        List<CompletableFuture<StockMovement>> futures = requests.stream().map(committer::submit).toList();
+
+        assertSame(first, futures.get(0).get(5, TimeUnit.SECONDS));
+        ExecutionException failed = assertThrows(ExecutionException.class, () -> futures.get(1).get(5, TimeUnit.SECONDS));
+        assertSame(shortfall, failed.getCause());
+        assertSame(third, futures.get(2).get(5, TimeUnit.SECONDS));
+        // One shared transaction for the whole group
+        verify(stockService).applyMovements(requests);
+    }
+
+    @Test
+    void failsEveryLineWhenTheSharedTransactionFails() {
+        committer = committer(60_000, 2);
+        UUID itemId = UUID.randomUUID();
+        IllegalStateException rollback = new IllegalStateException("Connection lost");
+        when(transactionTemplate.execute(any())).thenThrow(rollback);
+
+        CompletableFuture<StockMovement> first = committer.submit(request(itemId, MovementType.IN, 1));
+        CompletableFuture<StockMovement> second = committer.submit(request(itemId, MovementType.IN, 1));
+
+        assertSame(rollback, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(rollback, assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+    }
+
+    @Test
+    void flushesWaitingBatchesOnShutdownAndRefusesNewOnes() throws Exception {
+        committer = committer(60_000, 100);
+        StockMovement movement = new StockMovement();
+        runCallbacksInline();
+        when(stockService.applyMovements(anyList())).thenReturn(List.of(MovementOutcome.applied(movement, 1)));
+
+        CompletableFuture<StockMovement> waiting = committer.submit(request(UUID.randomUUID(), MovementType.IN, 1));
+        committer.shutdown();
+
+        assertSame(movement, waiting.get(5, TimeUnit.SECONDS));
+        IllegalStateException refused = assertThrows(IllegalStateException.class,
+                () -> committer.record(request(UUID.randomUUID(), MovementType.IN, 1)));
+        assertEquals("Group commit is shut down", refused.getMessage());
+    }
+
+    @Test
+    void stopsWaitingForAGroupThatDoesNotCommitInTime() {
+        committer = committer(60_000, 100, 50);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            return List.of(MovementOutcome.applied(new StockMovement(), 1));
+        });
+
+        IllegalStateException timedOut = assertThrows(IllegalStateException.class,
+                () -> committer.record(request(UUID.randomUUID(), MovementType.IN, 1)));
+        assertEquals("Timed out waiting for the movement to be committed", timedOut.getMessage());
+    }
+
+    private MovementGroupCommitter committer(long windowMs, int maxBatchSize) {
+        return committer(windowMs, maxBatchSize, 10_000);
+    }
+
+    private MovementGroupCommitter committer(long windowMs, int maxBatchSize, long timeoutMs) {
+        return new MovementGroupCommitter(stockService, transactionTemplate, true, windowMs, maxBatchSize, 1, timeoutMs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runCallbacksInline() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    private static StockMovementRequest request(UUID itemId, MovementType type, int quantity) {
+        return StockMovementRequest.builder()
+                .stockItemId(itemId)
+                .type(type)
+                .quantity(quantity)
+                .build();
+    }
+}
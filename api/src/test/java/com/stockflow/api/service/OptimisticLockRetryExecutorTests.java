@@ -0,0 +1,132 @@
+package com.stockflow.api.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class OptimisticLockRetryExecutorTests {
+    private final EntityManager entityManager = mock(EntityManager.class);
+
+    @Test
+    void rethrowsTheConflictOnceAttemptsRunOut() {
+        OptimisticLockRetryExecutor executor = executor(3, 100);
+        AtomicInteger calls = new AtomicInteger();
+        OptimisticLockException conflict = new OptimisticLockException("stale");
+
+        OptimisticLockException thrown = assertThrows(OptimisticLockException.class,
+                () -> executor.execute(List.of(UUID.randomUUID()), () -> {
+                    calls.incrementAndGet();
+                    throw conflict;
+                }));
+
+        assertSame(conflict, thrown);
+        assertEquals(3, calls.get());
+        assertEquals(3L, executor.getMetrics().get("conflicts"));
+        assertEquals(2L, executor.getMetrics().get("retries"));
+        assertEquals(1L, executor.getMetrics().get("exhausted"));
+        // Every retry starts from a fresh persistence context
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void returnsTheResultOfAnAttemptThatSucceedsAfterConflicts() {
+        OptimisticLockRetryExecutor executor = executor(4, 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.execute(List.of(UUID.randomUUID()), () -> {
+            if (calls.incrementAndGet() < 3) {
+                // Spring's translation of the same conflict counts too
+                throw new ObjectOptimisticLockingFailureException("StockItem", UUID.randomUUID());
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, calls.get());
+        assertEquals(1L, executor.getMetrics().get("recovered"));
+        assertEquals(0L, executor.getMetrics().get("exhausted"));
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        OptimisticLockRetryExecutor executor = executor(4, 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> executor.execute(List.of(UUID.randomUUID()), () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("not a conflict");
+        }));
+
+        assertEquals(1, calls.get());
+        assertEquals(0L, executor.getMetrics().get("conflicts"));
+    }
+
+    @Test
+    void stopsRetryingAnItemOnceItsBudgetIsSpent() {
+        OptimisticLockRetryExecutor executor = executor(10, 3);
+        UUID hot = UUID.randomUUID();
+        AtomicInteger calls = new AtomicInteger();
+
+        // Three retries use up the window's budget, so the fourth conflict is final
+        assertThrows(OptimisticLockException.class, () -> executor.execute(List.of(hot), () -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockException();
+        }));
+        assertEquals(4, calls.get());
+        assertEquals(1L, executor.getMetrics().get("budgetDenied"));
+
+        // Later callers on the same item get no retries in this window
+        calls.set(0);
+        assertThrows(OptimisticLockException.class, () -> executor.execute(List.of(hot), () -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockException();
+        }));
+        assertEquals(1, calls.get());
+
+        // A basket holding the hot item is limited by it as well
+        calls.set(0);
+        assertThrows(OptimisticLockException.class, () -> executor.execute(List.of(UUID.randomUUID(), hot), () -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockException();
+        }));
+        assertEquals(1, calls.get());
+        assertEquals(3L, executor.getMetrics().get("budgetDenied"));
+    }
+
+    @Test
+    void keepsSeparateBudgetsPerItem() {
+        OptimisticLockRetryExecutor executor = executor(10, 1);
+        UUID hot = UUID.randomUUID();
+        assertThrows(OptimisticLockException.class, () -> executor.execute(List.of(hot), () -> {
+            throw new OptimisticLockException();
+        }));
+
+        AtomicInteger calls = new AtomicInteger();
+        String result = executor.execute(List.of(UUID.randomUUID()), () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new OptimisticLockException();
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(2, calls.get());
+    }
+
+    // No backoff and a window far longer than the test, so budgets never reset mid-test
+    private OptimisticLockRetryExecutor executor(int maxAttempts, int budgetPerItem) {
+        return new OptimisticLockRetryExecutor(entityManager, maxAttempts, 0, 0, budgetPerItem, 60_000);
+    }
+}
@@ -0,0 +1,127 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.StockItemDTO;
+import com.stockflow.api.enums.StockStatus;
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.model.StockItem;
+import com.stockflow.api.repository.StockItemRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SkuIndexTests {
+    // Size of the SKU table while the index holds at most 1024 items
+    private static final int TABLE_SIZE = 2048;
+
+    private final StockItemRepository repository = mock(StockItemRepository.class);
+
+    @Test
+    void renameAtTheEndOfTheTableKeepsWrappedEntriesReachable() {
+        // Three SKUs hashing to the last slot: one fills it, the others wrap to slots 0 and 1
+        List<String> skus = skusWithHome(TABLE_SIZE - 1, 3);
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        SkuIndex index = build(List.of(
+                row(ids.get(0), skus.get(0), 1L),
+                row(ids.get(1), skus.get(1), 1L),
+                row(ids.get(2), skus.get(2), 1L)));
+
+        // Freeing the last slot shifts the wrapped entries back across the end of the table
+        index.onStockItemChanged(changed(ids.get(0), "RENAMED-0", 2L));
+
+        assertTrue(index.findBySku(skus.get(0)).isEmpty());
+        assertEquals(ids.get(0), index.findBySku("RENAMED-0").orElseThrow().getId());
+        assertEquals(ids.get(1), index.findBySku(skus.get(1)).orElseThrow().getId());
+        assertEquals(ids.get(2), index.findBySku(skus.get(2)).orElseThrow().getId());
+
+        // And renaming an entry that had wrapped leaves the rest of the chain intact
+        index.onStockItemChanged(changed(ids.get(1), "RENAMED-1", 2L));
+
+        assertTrue(index.findBySku(skus.get(1)).isEmpty());
+        assertEquals(ids.get(1), index.findBySku("RENAMED-1").orElseThrow().getId());
+        assertEquals(ids.get(2), index.findBySku(skus.get(2)).orElseThrow().getId());
+    }
+
+    @Test
+    void growsPastTheInitialCapacity() {
+        List<Object[]> rows = new ArrayList<>();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            rows.add(row(id, "SKU-" + i, 1L));
+        }
+        SkuIndex index = build(rows);
+
+        // Items added after startup grow the arrays and tables again
+        for (int i = 3000; i < 5000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            index.onStockItemChanged(changed(id, "SKU-" + i, 1L));
+        }
+
+        assertEquals(5000, index.size());
+        for (int i = 0; i < 5000; i++) {
+            StockItemDTO item = index.findBySku("SKU-" + i).orElseThrow();
+            assertEquals(ids.get(i), item.getId());
+            assertEquals("SKU-" + i, index.findById(ids.get(i)).orElseThrow().getSku());
+        }
+    }
+
+    @Test
+    void dropsQuantityChangesOlderThanTheIndexedVersion() {
+        UUID id = UUID.randomUUID();
+        SkuIndex index = build(List.<Object[]>of(row(id, "SKU-1", 1L)));
+
+        index.onStockItemChanged(new StockItemChangedEvent(id, 40, 3L, null));
+        index.onStockItemChanged(new StockItemChangedEvent(id, 45, 2L, null));
+
+        assertEquals(40, index.findBySku("SKU-1").orElseThrow().getQuantity());
+    }
+
+    private SkuIndex build(List<Object[]> rows) {
+        when(repository.findAllCatalogColumns()).thenReturn(rows);
+        SkuIndex index = new SkuIndex(repository, 10);
+        index.afterSingletonsInstantiated();
+        return index;
+    }
+
+    private static List<String> skusWithHome(int home, int count) {
+        List<String> skus = new ArrayList<>();
+        for (int i = 0; skus.size() < count; i++) {
+            String sku = "WRAP-" + i;
+            if ((SkuIndex.mix(sku.hashCode()) & (TABLE_SIZE - 1)) == home) {
+                skus.add(sku);
+            }
+        }
+        return skus;
+    }
+
+    private static Object[] row(UUID id, String sku, long version) {
+        LocalDateTime now = LocalDateTime.now();
+        return new Object[] {
+                id, sku, "Item " + sku, BigDecimal.ONE, 50, StockStatus.ACTIVE, null, version, now, now
+        };
+    }
+
+    private static StockItemChangedEvent changed(UUID id, String sku, long version) {
+        StockItem item = new StockItem();
+        item.setId(id);
+        item.setSku(sku);
+        item.setName("Item " + sku);
+        item.setPrice(BigDecimal.ONE);
+        item.setQuantity(50);
+        item.setVersion(version);
+        item.setCreatedAt(LocalDateTime.now());
+        item.setUpdatedAt(LocalDateTime.now());
+        return new StockItemChangedEvent(id, 50, version, item);
+    }
+}
@@ -0,0 +1,124 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.model.StockItem;
+import com.stockflow.api.repository.StockItemRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockSearchIndexTests {
+    private static final int ITEMS = 1000;
+
+    private final StockItemRepository repository = mock(StockItemRepository.class);
+
+    @Test
+    void intersectsTermsAndRanksSkuMatchesFirst() {
+        List<UUID> ids = ids(3);
+        StockSearchIndex index = build(List.of(
+                row(ids.get(0), "Blue widget", "BW-1"),
+                row(ids.get(1), "Red widget", "RW-1"),
+                row(ids.get(2), "Blue gadget", "WID-9")));
+
+        assertEquals(List.of(ids.get(0)), index.search("blue widget", 10));
+        // SKU prefix first, then word matches with the shorter name ahead
+        assertEquals(List.of(ids.get(2), ids.get(1), ids.get(0)), index.search("wid", 10));
+        assertTrue(index.search("green", 10).isEmpty());
+    }
+
+    @Test
+    void searchesRenumberedDocumentsAfterCompaction() {
+        List<UUID> ids = ids(ITEMS);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            rows.add(row(ids.get(i), "Widget " + number(i), "W-" + number(i)));
+        }
+        StockSearchIndex index = build(rows);
+
+        // 1100 renames retire over a quarter of the documents, which compacts the index part way through
+        for (int i = 0; i < ITEMS; i++) {
+            index.onStockItemChanged(renamed(ids.get(i), "Gadget " + number(i), "W-" + number(i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            index.onStockItemChanged(renamed(ids.get(i), "Gizmo " + number(i), "W-" + number(i)));
+        }
+
+        assertTrue(index.search("widget", 2 * ITEMS).isEmpty());
+        assertEquals(new HashSet<>(ids.subList(100, ITEMS)), new HashSet<>(index.search("gadget", 2 * ITEMS)));
+        assertEquals(new HashSet<>(ids.subList(0, 100)), new HashSet<>(index.search("gizmo", 2 * ITEMS)));
+        assertEquals(List.of(ids.get(500)), index.search("gadget 0500", 10));
+        assertEquals(List.of(ids.get(42)), index.search("gizmo w-0042", 10));
+        assertTrue(index.search("gadget 0042", 10).isEmpty());
+    }
+
+    @Test
+    void ignoresRenamesOlderThanTheIndexedVersion() {
+        List<UUID> ids = ids(1);
+        StockSearchIndex index = build(List.<Object[]>of(row(ids.get(0), "Blue widget", "BW-1")));
+
+        index.onStockItemChanged(renamed(ids.get(0), "Red widget", "BW-1", 3L));
+        // Committed earlier but delivered after the rename
+        index.onStockItemChanged(renamed(ids.get(0), "Green widget", "BW-1", 2L));
+
+        assertEquals(List.of(ids.get(0)), index.search("red", 10));
+        assertTrue(index.search("green", 10).isEmpty());
+    }
+
+    @Test
+    void needsATermOfAtLeastTwoCharacters() {
+        List<UUID> ids = ids(2);
+        StockSearchIndex index = build(List.of(
+                row(ids.get(0), "Blue widget", "BW-1"),
+                row(ids.get(1), "Black gadget", "BG-1")));
+
+        assertTrue(index.search("b", 10).isEmpty());
+        assertTrue(index.search("b w", 10).isEmpty());
+        assertEquals(List.of(ids.get(0)), index.search("bl w", 10));
+        assertEquals(2, index.search("bl", 10).size());
+    }
+
+    private StockSearchIndex build(List<Object[]> rows) {
+        when(repository.findAllSearchColumns()).thenReturn(rows);
+        StockSearchIndex index = new StockSearchIndex(repository);
+        index.afterSingletonsInstantiated();
+        return index;
+    }
+
+    private static List<UUID> ids(int count) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return ids;
+    }
+
+    private static String number(int i) {
+        return String.format("%04d", i);
+    }
+
+    private static Object[] row(UUID id, String name, String sku) {
+        return new Object[] {id, name, sku, 0L};
+    }
+
+    private static StockItemChangedEvent renamed(UUID id, String name, String sku) {
+        return renamed(id, name, sku, 0L);
+    }
+
+    private static StockItemChangedEvent renamed(UUID id, String name, String sku, long version) {
+        StockItem item = new StockItem();
+        item.setId(id);
+        item.setName(name);
+        item.setSku(sku);
+        item.setQuantity(1);
+        item.setVersion(version);
+        return new StockItemChangedEvent(id, 1, version, item);
+    }
+}
@@ -0,0 +1,116 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.enums.MovementType;
+import com.stockflow.api.event.StockItemChangedEvent;
+import com.stockflow.api.exception.InsufficientStockException;
+import com.stockflow.api.exception.ResourceNotFoundException;
+import com.stockflow.api.repository.StockItemRepository;
+import com.stockflow.api.repository.StockItemRepository.UpdatedQuantity;
+import com.stockflow.api.repository.StockLocationRepository;
+import com.stockflow.api.repository.StockMovementRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockServiceTests {
+    private static final int LOW_STOCK_THRESHOLD = 10;
+
+    private final StockItemRepository repository = mock(StockItemRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final StockService service = new StockService(
+            repository,
+            mock(StockMovementRepository.class),
+            mock(LocationRegistry.class),
+            mock(StockCatalogCache.class),
+            mock(LowStockIndex.class),
+            mock(SkuIndex.class),
+            mock(StockSearchIndex.class),
+            eventPublisher,
+            mock(EntityManager.class),
+            LOW_STOCK_THRESHOLD,
+            true);
+
+    @Test
+    void decrementsOnlyRowsThatCanCoverTheQuantity() throws NoSuchMethodException {
+        // The guard is what keeps the statement from taking a quantity below zero
+        String items = query(StockItemRepository.class, "decrementQuantity", UUID.class, int.class, int.class);
+        assertTrue(items.contains("WHERE id = :id AND quantity >= :quantity"), items);
+
+        String locations = query(StockLocationRepository.class, "decrementQuantity", UUID.class, UUID.class, int.class);
+        assertTrue(locations.contains("AND quantity >= :quantity"), locations);
+    }
+
+    @Test
+    void reportsTheCurrentQuantityWhenTheDecrementMatchesNothing() {
+        UUID itemId = UUID.randomUUID();
+        when(repository.decrementQuantity(itemId, 5, LOW_STOCK_THRESHOLD)).thenReturn(Optional.empty());
+        when(repository.findQuantityById(itemId)).thenReturn(Optional.of(3));
+
+        InsufficientStockException e = assertThrows(InsufficientStockException.class,
+                () -> service.changeQuantityAtomically(itemId, MovementType.OUT, 5));
+
+        assertEquals("Insufficient stock. Available: 3", e.getMessage());
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(repository, never()).incrementQuantity(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void reportsAMissingItemWhenTheDecrementMatchesNothing() {
+        UUID itemId = UUID.randomUUID();
+        when(repository.decrementQuantity(itemId, 1, LOW_STOCK_THRESHOLD)).thenReturn(Optional.empty());
+        when(repository.findQuantityById(itemId)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> service.changeQuantityAtomically(itemId, MovementType.OUT, 1));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void publishesTheQuantityAndVersionReturnedByTheUpdate() {
+        UUID itemId = UUID.randomUUID();
+        when(repository.decrementQuantity(itemId, 4, LOW_STOCK_THRESHOLD))
+                .thenReturn(Optional.of(updated(0, 7L)));
+
+        assertEquals(0, service.changeQuantityAtomically(itemId, MovementType.OUT, 4));
+
+        ArgumentCaptor<StockItemChangedEvent> event = ArgumentCaptor.forClass(StockItemChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(itemId, event.getValue().getStockItemId());
+        assertEquals(0, event.getValue().getQuantity());
+        assertEquals(7L, event.getValue().getVersion());
+    }
+
+    private static String query(Class<?> repository, String method, Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        return repository.getMethod(method, parameterTypes).getAnnotation(Query.class).value();
+    }
+
+    private static UpdatedQuantity updated(int quantity, long version) {
+        return new UpdatedQuantity() {
+            @Override
+            public Integer getQuantity() {
+                return quantity;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+}
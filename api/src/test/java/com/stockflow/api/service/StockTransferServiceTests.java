@@ -0,0 +1,171 @@
+package com.stockflow.api.service;
+
+import com.stockflow.api.dto.TransferLineResult;
+import com.stockflow.api.dto.TransferManifestLine;
+import com.stockflow.api.dto.TransferManifestRequest;
+import com.stockflow.api.model.Location;
+import com.stockflow.api.model.StockItem;
+import com.stockflow.api.model.StockLocation;
+import com.stockflow.api.repository.LocationRepository;
+import com.stockflow.api.repository.StockItemRepository;
+import com.stockflow.api.repository.StockLocationRepository;
+import com.stockflow.api.repository.StockMovementRepository;
+import jakarta.persistence.LockModeType;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockTransferServiceTests {
+    private static final String LOCK_ORDER = "ORDER BY sl.stockItem.id, sl.location.id";
+
+    private final StockLocationRepository stockLocationRepository = mock(StockLocationRepository.class);
+    private final StockMovementRepository movementRepository = mock(StockMovementRepository.class);
+    private final LocationRegistry locationRegistry = mock(LocationRegistry.class);
+    private final EscrowService escrowService = mock(EscrowService.class);
+    private final StockTransferService service = new StockTransferService(
+            stockLocationRepository,
+            movementRepository,
+            mock(LocationRepository.class),
+            locationRegistry,
+            mock(StockItemRepository.class),
+            escrowService,
+            mock(ApplicationEventPublisher.class),
+            false);
+
+    private final Location source = location();
+    private final Location target = location();
+
+    @Test
+    void manifestAndSaleLocksShareOneRowOrder() throws NoSuchMethodException {
+        // Manifests and sales lock overlapping rows, so both must take them in the same order
+        Method manifest = StockLocationRepository.class.getMethod(
+                "findTransferRowsWithLock", UUID.class, UUID.class, Collection.class);
+        Method sale = StockLocationRepository.class.getMethod(
+                "findByLocationAndStockItemsWithLock", UUID.class, Collection.class);
+
+        for (Method method : List.of(manifest, sale)) {
+            assertEquals(LockModeType.PESSIMISTIC_WRITE, method.getAnnotation(Lock.class).value());
+            String query = method.getAnnotation(Query.class).value();
+            assertTrue(query.contains(LOCK_ORDER), query);
+        }
+    }
+
+    @Test
+    void locksEverySourceAndTargetRowInOneQueryBeforeWriting() {
+        StockItem first = item();
+        StockItem second = item();
+        StockItem third = item();
+        StockLocation firstSource = row(first, source, 10);
+        StockLocation firstTarget = row(first, target, 1);
+        StockLocation secondSource = row(second, source, 5);
+        StockLocation thirdSource = row(third, source, 2);
+        when(stockLocationRepository.findTransferRowsWithLock(eq(source.getId()), eq(target.getId()), anyCollection()))
+                .thenReturn(List.of(firstSource, firstTarget, secondSource, thirdSource));
+
+        List<TransferLineResult> results = service.transferManifest(manifest(
+                line(second, 2),
+                line(first, 4),
+                line(third, 3),
+                line(first, 1)));
+
+        // One lock query covering every item, then only writes
+        InOrder order = inOrder(stockLocationRepository, movementRepository);
+        order.verify(stockLocationRepository).findTransferRowsWithLock(
+                source.getId(), target.getId(), Set.of(first.getId(), second.getId(), third.getId()));
+        order.verify(stockLocationRepository).saveAll(any());
+        order.verify(movementRepository).saveAll(any());
+        verify(stockLocationRepository, never()).findByStockItemAndLocationWithLock(any(), any());
+        verify(stockLocationRepository, never()).findEscrowByLocationAndStockItems(any(), any());
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(3, results.get(0).getSourceQuantity());
+        assertEquals(2, results.get(0).getTargetQuantity());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(5, firstSource.getQuantity());
+        assertEquals(6, firstTarget.getQuantity());
+        assertEquals(2, thirdSource.getQuantity());
+    }
+
+    @Test
+    void readsEscrowSourcesAfterTheOrderedLocks() {
+        StockItem plain = item();
+        StockItem escrowed = item();
+        StockLocation plainSource = row(plain, source, 10);
+        StockLocation escrowSource = row(escrowed, source, 0);
+        escrowSource.setEscrowBuckets(4);
+        when(stockLocationRepository.findTransferRowsWithLock(eq(source.getId()), eq(target.getId()), anyCollection()))
+                .thenReturn(List.of(plainSource));
+        when(stockLocationRepository.findEscrowByLocationAndStockItems(source.getId(), List.of(escrowed.getId())))
+                .thenReturn(List.of(escrowSource));
+        when(escrowService.tryWithdraw(escrowSource, 3)).thenReturn(true);
+
+        List<TransferLineResult> results = service.transferManifest(manifest(line(escrowed, 3), line(plain, 1)));
+
+        InOrder order = inOrder(stockLocationRepository, escrowService);
+        order.verify(stockLocationRepository).findTransferRowsWithLock(any(), any(), anyCollection());
+        order.verify(stockLocationRepository).findEscrowByLocationAndStockItems(source.getId(), List.of(escrowed.getId()));
+        order.verify(escrowService).tryWithdraw(escrowSource, 3);
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+    }
+
+    private TransferManifestRequest manifest(TransferManifestLine... lines) {
+        when(locationRegistry.findReference(source.getId())).thenReturn(Optional.of(source));
+        when(locationRegistry.findReference(target.getId())).thenReturn(Optional.of(target));
+        TransferManifestRequest request = new TransferManifestRequest();
+        request.setSourceLocationId(source.getId());
+        request.setTargetLocationId(target.getId());
+        request.setLines(new ArrayList<>(List.of(lines)));
+        return request;
+    }
+
+    private static TransferManifestLine line(StockItem item, int quantity) {
+        TransferManifestLine line = new TransferManifestLine();
+        line.setStockItemId(item.getId());
+        line.setQuantity(quantity);
+        return line;
+    }
+
+    private static StockLocation row(StockItem item, Location location, int quantity) {
+        StockLocation row = new StockLocation();
+        row.setStockItem(item);
+        row.setLocation(location);
+        row.setQuantity(quantity);
+        return row;
+    }
+
+    private static StockItem item() {
+        StockItem item = new StockItem();
+        item.setId(UUID.randomUUID());
+        return item;
+    }
+
+    private static Location location() {
+        Location location = new Location();
+        location.setId(UUID.randomUUID());
+        return location;
+    }
+}